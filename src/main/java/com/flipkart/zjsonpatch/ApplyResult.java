@@ -0,0 +1,88 @@
+package com.flipkart.zjsonpatch;
+
+import com.google.gson.JsonElement;
+
+/**
+ * The outcome of applying a patch without throwing: either the patched document, or the operation the
+ * patch failed at and why, as a {@link JsonPatchApplicationException} would report it.
+ *
+ * @see JsonPatch#tryApply(Patch, JsonElement, java.util.EnumSet)
+ * @since 0.4.17
+ */
+public final class ApplyResult {
+    private final JsonElement result;
+    private final int operationIndex;
+    private final Operation operation;
+    private final JsonPointer path;
+    private final String message;
+
+    private ApplyResult(JsonElement result, int operationIndex, Operation operation, JsonPointer path, String message) {
+        this.result = result;
+        this.operationIndex = operationIndex;
+        this.operation = operation;
+        this.path = path;
+        this.message = message;
+    }
+
+    static ApplyResult applied(JsonElement result) {
+        return new ApplyResult(result, -1, null, null, null);
+    }
+
+    static ApplyResult failed(int operationIndex, Operation operation, JsonPointer path, String message) {
+        return new ApplyResult(null, operationIndex, operation, path, message);
+    }
+
+    public boolean isApplied() {
+        return message == null;
+    }
+
+    /** The patched document, or {@code null} if the patch failed. */
+    public JsonElement getResult() {
+        return result;
+    }
+
+    /**
+     * The index in the patch of the operation that failed, or -1 if the patch was applied or is not an array of
+     * operations.
+     */
+    public int getOperationIndex() {
+        return operationIndex;
+    }
+
+    /**
+     * The type of the operation that failed, as in {@link JsonPatchApplicationException#getOperation()}; {@code null}
+     * if the patch was applied or the failed operation is invalid.
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * The location the failure was detected at, as in {@link JsonPatchApplicationException#getPath()}; {@code null}
+     * if the patch was applied or is invalid.
+     */
+    public JsonPointer getPath() {
+        return path;
+    }
+
+    /** Why the patch failed, or {@code null} if it was applied. */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Renders a failure like {@link JsonPatchApplicationException#toString()}, prefixed with the index of the
+     * operation that failed.
+     */
+    @Override
+    public String toString() {
+        if (isApplied())
+            return "Applied: " + result;
+        StringBuilder sb = new StringBuilder();
+        if (operationIndex >= 0) sb.append('#').append(operationIndex).append(' ');
+        if (operation != null) sb.append('[').append(operation).append(" Operation] ");
+        sb.append(message);
+        if (path != null) sb.append(" at ").append(path.isRoot() ? "root" : path);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.flipkart.zjsonpatch;
+
+import com.google.gson.JsonElement;
+
+/**
+ * Extracts identity keys from array elements, letting {@link JsonDiff} match the elements of two
+ * arrays by key rather than by position. Matched elements are diffed in place, reordered elements
+ * are moved, and only genuinely inserted or deleted elements produce {@link Operation#ADD} or
+ * {@link Operation#REMOVE} operations.
+ *
+ * <p>An array is diffed by key only if every element of both the source and the target array has a
+ * key and keys are unique within each of them; all other arrays are diffed by position.
+ *
+ * @see DiffOptions#withArrayKeyExtractor(ArrayKeyExtractor)
+ * @since 0.4.17
+ */
+public interface ArrayKeyExtractor {
+
+    /**
+     * @param arrayPath The location of the array in the source document.
+     * @param element An element of the array.
+     * @return The key identifying the element, or {@code null} if it has none.
+     */
+    JsonElement extract(JsonPointer arrayPath, JsonElement element);
+
+    /**
+     * Returns an extractor keying object elements by the value of the given field, e.g. {@code "id"}.
+     */
+    static ArrayKeyExtractor field(final String name) {
+        if (name == null) throw new IllegalArgumentException("Field name can't be null");
+        return new ArrayKeyExtractor() {
+            @Override
+            public JsonElement extract(JsonPointer arrayPath, JsonElement element) {
+                return element.isJsonObject() ? element.getAsJsonObject().get(name) : null;
+            }
+        };
+    }
+}
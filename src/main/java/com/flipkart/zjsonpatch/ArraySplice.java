@@ -0,0 +1,87 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+/**
+ * A gap buffer over the elements of a {@link JsonArray}, for applying a run of inserts and removals to it as
+ * one splice. Elements before the gap are kept in order, elements after it in reverse order, so an insert or
+ * removal at the gap is O(1) and moving the gap costs the distance it moves. Operations in increasing (or
+ * decreasing) index order, which is what diffs of arrays produce, therefore cost O(n + k) in total instead of
+ * O(n) each. Changes are written back to the array by {@link #commit()}.
+ */
+final class ArraySplice extends AbstractList<JsonElement> {
+    private final JsonArray array;
+    private final List<JsonElement> before;
+    private final List<JsonElement> after;
+
+    ArraySplice(JsonArray array) {
+        this.array = array;
+        this.before = new ArrayList<JsonElement>();
+        this.after = new ArrayList<JsonElement>(array.size());
+        for (int i = array.size() - 1; i >= 0; i--) {
+            after.add(array.get(i));
+        }
+    }
+
+    @Override
+    public int size() {
+        return before.size() + after.size();
+    }
+
+    @Override
+    public JsonElement get(int index) {
+        checkIndex(index);
+        return index < before.size() ? before.get(index) : after.get(after.size() - 1 - (index - before.size()));
+    }
+
+    @Override
+    public JsonElement set(int index, JsonElement element) {
+        checkIndex(index);
+        moveGap(index);
+        return after.set(after.size() - 1, element);
+    }
+
+    @Override
+    public void add(int index, JsonElement element) {
+        if (index < 0 || index > size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        moveGap(index);
+        before.add(element);
+    }
+
+    @Override
+    public JsonElement remove(int index) {
+        checkIndex(index);
+        moveGap(index);
+        return after.remove(after.size() - 1);
+    }
+
+    /** Replaces the elements of the array with the elements of this splice. */
+    void commit() {
+        List<JsonElement> elements = array.asList();
+        elements.clear();
+        elements.addAll(before);
+        for (int i = after.size() - 1; i >= 0; i--) {
+            elements.add(after.get(i));
+        }
+    }
+
+    private void moveGap(int index) {
+        while (before.size() > index) {
+            after.add(before.remove(before.size() - 1));
+        }
+        while (before.size() < index) {
+            before.add(after.remove(after.size() - 1));
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+    }
+}
@@ -0,0 +1,79 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.EnumSet;
+
+import com.google.gson.JsonElement;
+
+/**
+ * A JSON Patch parsed and validated once by {@link JsonPatch#compile(JsonElement, EnumSet)}, for applying the
+ * same patch to many documents. Operations hold their parsed pointers and values, so applying does no parsing
+ * or validation.
+ *
+ * <p>Instances are immutable and can be applied from several threads at once; values are copied into the
+ * documents they are applied to.
+ *
+ * @since 0.4.17
+ */
+public final class CompiledPatch {
+    private final Patch patch;
+    private final EnumSet<CompatibilityFlags> flags;
+
+    CompiledPatch(Patch patch, EnumSet<CompatibilityFlags> flags) {
+        this.patch = patch;
+        this.flags = flags.clone();
+    }
+
+    /**
+     * @return The compiled operations.
+     */
+    public Patch getPatch() {
+        return patch;
+    }
+
+    /**
+     * Applies the patch to a copy of {@code source}, like {@link JsonPatch#apply(JsonElement, JsonElement, EnumSet)}.
+     */
+    public JsonElement apply(JsonElement source) throws JsonPatchApplicationException {
+        return JsonPatch.apply(patch, source, flags);
+    }
+
+    /**
+     * Applies the patch to {@code source} itself, like {@link JsonPatch#applyInPlace(JsonElement, JsonElement, EnumSet)}.
+     */
+    public void applyInPlace(JsonElement source) throws JsonPatchApplicationException {
+        JsonPatch.applyInPlace(patch, source, flags);
+    }
+
+    /**
+     * Applies the patch to a copy of {@code source}, reporting a failure in the result instead of throwing, like
+     * {@link JsonPatch#tryApply(Patch, JsonElement, EnumSet)}.
+     */
+    public ApplyResult tryApply(JsonElement source) {
+        return JsonPatch.tryApply(patch, source, flags);
+    }
+
+    /**
+     * Applies the patch to {@code source} itself, reporting a failure in the result instead of throwing, like
+     * {@link JsonPatch#tryApplyInPlace(Patch, JsonElement, EnumSet)}.
+     */
+    public ApplyResult tryApplyInPlace(JsonElement source) {
+        return JsonPatch.tryApplyInPlace(patch, source, flags);
+    }
+
+    /**
+     * Applies the patch to {@code source} itself, reverting it on failure, like
+     * {@link JsonPatch#applyInPlaceAtomically(Patch, JsonElement, EnumSet)}.
+     *
+     * @return A patch that reverts the modifications when applied to the result.
+     */
+    public Patch applyInPlaceAtomically(JsonElement source) throws JsonPatchApplicationException {
+        return JsonPatch.applyInPlaceAtomically(patch, source, flags);
+    }
+
+    /**
+     * Applies the patch to a structural copy of {@code source}, like {@link JsonPatch#applySharing(Patch, JsonElement, EnumSet)}.
+     */
+    public JsonElement applySharing(JsonElement source) throws JsonPatchApplicationException {
+        return JsonPatch.applySharing(patch, source, flags);
+    }
+}
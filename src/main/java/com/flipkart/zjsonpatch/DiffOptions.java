@@ -0,0 +1,188 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tuning options for {@link JsonDiff}. Where {@link DiffFlags} select what a generated patch looks like,
+ * these options control the resources spent computing it.
+ *
+ * <p>Instances are immutable: start from {@link #defaults()} and derive new instances with the
+ * {@code with...} methods.
+ *
+ * @since 0.4.17
+ */
+public final class DiffOptions {
+
+    /**
+     * Default value of {@link #getMaxLcsCells()}: 4M cells, i.e. 16 MB of alignment state per array.
+     */
+    public static final long DEFAULT_MAX_LCS_CELLS = 1L << 22;
+
+    /**
+     * Default value of {@link #getMinCopySize()}: a container with at least one child.
+     */
+    public static final int DEFAULT_MIN_COPY_SIZE = 2;
+
+    /**
+     * Default value of {@link #getMinParallelSize()}.
+     */
+    public static final int DEFAULT_MIN_PARALLEL_SIZE = 1 << 13;
+
+    private static final DiffOptions DEFAULTS =
+            new DiffOptions(DEFAULT_MAX_LCS_CELLS, null, DEFAULT_MIN_COPY_SIZE, null, DEFAULT_MIN_PARALLEL_SIZE,
+                    Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxLcsCells;
+    private final ArrayKeyExtractor arrayKeyExtractor;
+    private final int minCopySize;
+    private final ForkJoinPool forkJoinPool;
+    private final int minParallelSize;
+    private final long maxArrayWork;
+    private final long maxDiffWork;
+
+    private DiffOptions(long maxLcsCells, ArrayKeyExtractor arrayKeyExtractor, int minCopySize,
+                        ForkJoinPool forkJoinPool, int minParallelSize, long maxArrayWork, long maxDiffWork) {
+        this.maxLcsCells = maxLcsCells;
+        this.arrayKeyExtractor = arrayKeyExtractor;
+        this.minCopySize = minCopySize;
+        this.forkJoinPool = forkJoinPool;
+        this.minParallelSize = minParallelSize;
+        this.maxArrayWork = maxArrayWork;
+        this.maxDiffWork = maxDiffWork;
+    }
+
+    public static DiffOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * The number of int cells array alignment may keep in memory before it switches from the
+     * fast O(ND) algorithm to a divide-and-conquer algorithm whose memory is linear in the array
+     * sizes. Arrays that need more cells still diff correctly, only more slowly.
+     */
+    public long getMaxLcsCells() {
+        return maxLcsCells;
+    }
+
+    /**
+     * @param maxLcsCells See {@link #getMaxLcsCells()}; {@code 0} always uses the linear-memory algorithm.
+     * @return A copy of these options with the given cell limit.
+     */
+    public DiffOptions withMaxLcsCells(long maxLcsCells) {
+        if (maxLcsCells < 0) throw new IllegalArgumentException("maxLcsCells can't be negative");
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+
+    /**
+     * The extractor used to match array elements by key, or {@code null} if arrays are only diffed by
+     * position, which is the default.
+     */
+    public ArrayKeyExtractor getArrayKeyExtractor() {
+        return arrayKeyExtractor;
+    }
+
+    /**
+     * @param arrayKeyExtractor See {@link #getArrayKeyExtractor()}; for example
+     *                          {@code ArrayKeyExtractor.field("id")}.
+     * @return A copy of these options diffing arrays by the given keys.
+     */
+    public DiffOptions withArrayKeyExtractor(ArrayKeyExtractor arrayKeyExtractor) {
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+
+    /**
+     * The number of nodes a value nested inside an unchanged part of the source must have to be offered
+     * as the source of a {@link Operation#COPY} operation. Unchanged values at the same location in both
+     * documents are always offered; the threshold keeps small scalars inside them, whose copy operations
+     * would be no shorter than the add they replace, out of the copy index.
+     */
+    public int getMinCopySize() {
+        return minCopySize;
+    }
+
+    /**
+     * @param minCopySize See {@link #getMinCopySize()}; {@code 1} also offers single scalars.
+     * @return A copy of these options with the given copy source threshold.
+     */
+    public DiffOptions withMinCopySize(int minCopySize) {
+        if (minCopySize < 1) throw new IllegalArgumentException("minCopySize must be positive");
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+
+    /**
+     * The pool subtrees are diffed on in parallel, or {@code null} if diffs are computed on the calling
+     * thread only, which is the default. Parallel diffs are identical to sequential ones; a configured
+     * {@link ArrayKeyExtractor} must be thread-safe.
+     */
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
+
+    /**
+     * @param forkJoinPool See {@link #getForkJoinPool()}; for example {@link ForkJoinPool#commonPool()}.
+     * @return A copy of these options diffing on the given pool.
+     */
+    public DiffOptions withForkJoinPool(ForkJoinPool forkJoinPool) {
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+
+    /**
+     * The number of nodes a pair of differing subtrees must have together to be diffed as a separate
+     * parallel task. Smaller subtrees are diffed by the task of their parent.
+     */
+    public int getMinParallelSize() {
+        return minParallelSize;
+    }
+
+    /**
+     * @param minParallelSize See {@link #getMinParallelSize()}.
+     * @return A copy of these options with the given task size threshold.
+     */
+    public DiffOptions withMinParallelSize(int minParallelSize) {
+        if (minParallelSize < 1) throw new IllegalArgumentException("minParallelSize must be positive");
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+
+    /**
+     * The work, in visited edit graph cells, that aligning the elements of a single pair of arrays may
+     * take. An array whose alignment would take more is replaced as a whole by a single
+     * {@link Operation#REPLACE} operation instead. Unbounded by default.
+     */
+    public long getMaxArrayWork() {
+        return maxArrayWork;
+    }
+
+    /**
+     * @param maxArrayWork See {@link #getMaxArrayWork()}.
+     * @return A copy of these options with the given per-array work limit.
+     */
+    public DiffOptions withMaxArrayWork(long maxArrayWork) {
+        if (maxArrayWork < 0) throw new IllegalArgumentException("maxArrayWork can't be negative");
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+
+    /**
+     * The work, in visited edit graph cells, that aligning arrays may take across a whole diff. Once it
+     * is used up, every further differing array is replaced as a whole, like with
+     * {@link #getMaxArrayWork()}. Unbounded by default.
+     */
+    public long getMaxDiffWork() {
+        return maxDiffWork;
+    }
+
+    /**
+     * @param maxDiffWork See {@link #getMaxDiffWork()}.
+     * @return A copy of these options with the given per-diff work limit.
+     */
+    public DiffOptions withMaxDiffWork(long maxDiffWork) {
+        if (maxDiffWork < 0) throw new IllegalArgumentException("maxDiffWork can't be negative");
+        return new DiffOptions(maxLcsCells, arrayKeyExtractor, minCopySize, forkJoinPool, minParallelSize,
+                maxArrayWork, maxDiffWork);
+    }
+}
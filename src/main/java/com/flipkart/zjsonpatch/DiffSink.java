@@ -0,0 +1,37 @@
+package com.flipkart.zjsonpatch;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Receives the operations of a diff one at a time, in patch order, instead of as a single
+ * {@link com.google.gson.JsonArray}.
+ *
+ * <p>When {@link Operation#MOVE} and {@link Operation#COPY} normalization are both disabled (see
+ * {@link DiffFlags#dontNormalizeOpIntoMoveAndCopy()}) and the diff is not computed in parallel,
+ * operations are passed on as soon as they are found and the patch is never held in memory as a whole.
+ * Otherwise the operations have to be collected for normalization first, but the sink still saves the
+ * intermediate {@code JsonArray}.
+ *
+ * @see JsonDiff#asJson(com.google.gson.JsonElement, com.google.gson.JsonElement, java.util.EnumSet, DiffOptions, DiffSink)
+ * @see JsonWriterDiffSink
+ * @since 0.4.17
+ */
+public interface DiffSink {
+
+    /**
+     * Called once before the first operation.
+     */
+    default void begin() {
+    }
+
+    /**
+     * @param operation The next operation of the patch, rendered as in {@link JsonDiff#asJson}.
+     */
+    void accept(JsonObject operation);
+
+    /**
+     * Called once after the last operation.
+     */
+    default void end() {
+    }
+}
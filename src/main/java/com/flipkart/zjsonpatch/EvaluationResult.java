@@ -0,0 +1,72 @@
+package com.flipkart.zjsonpatch;
+
+import com.google.gson.JsonElement;
+
+/**
+ * The outcome of evaluating a {@link JsonPointer} against a document without throwing: either the node the
+ * pointer resolves to, or the reason it doesn't resolve, as a {@link JsonPointerEvaluationException} would
+ * report it.
+ *
+ * @see JsonPointer#tryEvaluate(JsonElement)
+ * @see PointerSet#evaluate(JsonElement)
+ * @since 0.4.17
+ */
+public final class EvaluationResult {
+    private final JsonPointer pointer;
+    private final JsonElement value;
+    private final String message;
+    private final JsonPointer errorPath;
+
+    private EvaluationResult(JsonPointer pointer, JsonElement value, String message, JsonPointer errorPath) {
+        this.pointer = pointer;
+        this.value = value;
+        this.message = message;
+        this.errorPath = errorPath;
+    }
+
+    static EvaluationResult resolved(JsonPointer pointer, JsonElement value) {
+        return new EvaluationResult(pointer, value, null, null);
+    }
+
+    static EvaluationResult failed(JsonPointer pointer, String message, JsonPointer errorPath) {
+        return new EvaluationResult(pointer, null, message, errorPath);
+    }
+
+    /** The pointer that was evaluated. */
+    public JsonPointer getPointer() {
+        return pointer;
+    }
+
+    public boolean isResolved() {
+        return message == null;
+    }
+
+    /**
+     * The node the pointer resolves to, which may be {@link com.google.gson.JsonNull}, or {@code null} if it
+     * doesn't resolve.
+     */
+    public JsonElement getValue() {
+        return value;
+    }
+
+    /**
+     * Why the pointer doesn't resolve, as in {@link JsonPointerEvaluationException#getMessage()}, or {@code null}
+     * if it resolves.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * The location of the node the pointer couldn't be followed past, as in
+     * {@link JsonPointerEvaluationException#getPath()}, or {@code null} if it resolves.
+     */
+    public JsonPointer getErrorPath() {
+        return errorPath;
+    }
+
+    @Override
+    public String toString() {
+        return isResolved() ? pointer + " = " + value : pointer + ": " + message + " at " + (errorPath.isRoot() ? "root" : errorPath);
+    }
+}
@@ -0,0 +1,28 @@
+package com.flipkart.zjsonpatch;
+
+/**
+ * A binary indexed tree over a fixed number of int counters, supporting point updates and
+ * prefix sums in O(log n).
+ */
+final class FenwickTree {
+    private final int[] tree;
+
+    FenwickTree(int size) {
+        this.tree = new int[size + 1];
+    }
+
+    void add(int index, int delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Returns the sum of the counters at indices {@code [0, index)}. */
+    int prefixSum(int index) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+}
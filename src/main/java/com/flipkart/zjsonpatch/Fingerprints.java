@@ -0,0 +1,247 @@
+package com.flipkart.zjsonpatch;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * Structural 64-bit hashes of JSON subtrees, scoped to a single diff.
+ *
+ * <p>A container's fingerprint is computed bottom-up the first time it is requested and cached
+ * by identity, so repeated comparisons of the same subtree are O(1). Object fingerprints do not
+ * depend on key order. Whole numbers are hashed by their exact value, whatever their type or
+ * notation ({@code 1}, {@code 1.0} and {@code 1e0} hash alike), and other numbers by their double
+ * value. Two elements are equal when their fingerprints match and a deep
+ * {@link JsonElement#equals(Object)} confirms it, so whole numbers that differ beyond double
+ * precision, which {@link JsonPrimitive#equals(Object)} may consider equal, are told apart.
+ * The number of nodes in each subtree is cached alongside its fingerprint.
+ *
+ * <p>The documents being diffed must not be mutated while an instance is in use. Instances are not
+ * thread-safe; threads diffing in parallel each use a {@link #fork()} of a fully computed instance.
+ */
+final class Fingerprints {
+    private static final long NULL = 0x5bd1e9955bd1e995L;
+    private static final long TRUE = 0x2127599bf4325c37L;
+    private static final long FALSE = 0x7a2d5f93a1e4c6b1L;
+    private static final long ARRAY_SEED = 0x3c6ef372fe94f82bL;
+    private static final long OBJECT_SEED = 0x1f83d9abfb41bd6bL;
+    private static final long GOLDEN = 0x9e3779b97f4a7c15L;
+
+    private final Map<JsonElement, Summary> cache = new IdentityHashMap<JsonElement, Summary>();
+    // read-only cache of the instance this one was forked from
+    private final Fingerprints shared;
+
+    Fingerprints() {
+        this(null);
+    }
+
+    private Fingerprints(Fingerprints shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Returns an instance that reads this instance's cache but caches new elements on its own. This
+     * instance must no longer be modified while forks are in use.
+     */
+    Fingerprints fork() {
+        return new Fingerprints(shared != null ? shared : this);
+    }
+
+    long of(JsonElement element) {
+        if (element.isJsonPrimitive())
+            return primitive(element.getAsJsonPrimitive());
+        if (element.isJsonNull())
+            return NULL;
+        return summarize(element).hash;
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at {@code element}, counting the element itself.
+     */
+    int size(JsonElement element) {
+        if (element.isJsonPrimitive() || element.isJsonNull())
+            return 1;
+        return summarize(element).size;
+    }
+
+    private Summary summarize(JsonElement element) {
+        Summary cached = shared != null ? shared.cache.get(element) : null;
+        if (cached == null)
+            cached = cache.get(element);
+        if (cached != null)
+            return cached;
+
+        long hash;
+        int size = 1;
+        if (element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            hash = ARRAY_SEED + array.size();
+            for (JsonElement child : array) {
+                hash = mix(hash * GOLDEN + of(child));
+                size += size(child);
+            }
+        } else {
+            JsonObject object = element.getAsJsonObject();
+            hash = OBJECT_SEED + object.size();
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                // summing keeps the result independent of key order
+                hash += mix(string(entry.getKey()) * GOLDEN + of(entry.getValue()));
+                size += size(entry.getValue());
+            }
+            hash = mix(hash);
+        }
+        Summary summary = new Summary(hash, size);
+        cache.put(element, summary);
+        return summary;
+    }
+
+    /**
+     * Compares two elements, deep comparing them only when their fingerprints match.
+     */
+    boolean equal(JsonElement a, JsonElement b) {
+        if (a == b) return true;
+        if (a == null || b == null) return false;
+        return of(a) == of(b) && a.equals(b);
+    }
+
+    /**
+     * Wraps an element into a hash key that uses its fingerprint instead of {@link JsonElement#hashCode()}.
+     */
+    Key key(JsonElement element) {
+        return new Key(element, of(element));
+    }
+
+    private static long primitive(JsonPrimitive primitive) {
+        if (primitive.isNumber())
+            return number(primitive.getAsNumber());
+        if (primitive.isBoolean())
+            return primitive.getAsBoolean() ? TRUE : FALSE;
+        return mix(string(primitive.getAsString()));
+    }
+
+    /**
+     * Hashes a whole number by its exact value, and any other number by its double value.
+     */
+    private static long number(Number number) {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte)
+            return mix(number.longValue());
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            if (Double.isNaN(value) || Double.isInfinite(value) || value != Math.rint(value))
+                return decimal(value);
+            if (Math.abs(value) < 0x1p63)
+                return mix((long) value);
+            return integral(new BigDecimal(value));
+        }
+        BigDecimal value;
+        if (number instanceof BigDecimal) {
+            value = (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            value = new BigDecimal((BigInteger) number);
+        } else {
+            // a number parsed lazily, usually a short integer
+            String text = number.toString();
+            if (isShortInteger(text))
+                return mix(Long.parseLong(text));
+            try {
+                value = new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                // NaN or Infinity, read leniently
+                return decimal(number.doubleValue());
+            }
+        }
+        if (value.signum() == 0)
+            return mix(0L);
+        BigDecimal stripped = value.stripTrailingZeros();
+        return stripped.scale() <= 0 ? integral(stripped) : decimal(value.doubleValue());
+    }
+
+    private static long integral(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        if (stripped.precision() - stripped.scale() <= 19) {
+            BigInteger integer = stripped.toBigIntegerExact();
+            if (integer.bitLength() < 64)
+                return mix(integer.longValue());
+        }
+        // hashed without expanding the exponent, so 1e1000000 stays cheap
+        return mix(stripped.unscaledValue().hashCode() * GOLDEN + stripped.scale());
+    }
+
+    private static long decimal(double value) {
+        if (value == 0.0) value = 0.0; // -0.0 equals 0.0
+        return mix(Double.doubleToLongBits(value));
+    }
+
+    private static boolean isShortInteger(String text) {
+        int start = text.startsWith("-") ? 1 : 0;
+        if (text.length() == start || text.length() - start > 18)
+            return false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static long string(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Summary {
+        private final long hash;
+        private final int size;
+
+        private Summary(long hash, int size) {
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+
+    static final class Key {
+        private final JsonElement element;
+        private final long hash;
+
+        private Key(JsonElement element, long hash) {
+            this.element = element;
+            this.hash = hash;
+        }
+
+        JsonElement getElement() {
+            return element;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+            return hash == that.hash && (element == that.element || element.equals(that.element));
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
@@ -16,16 +16,34 @@
 
 package com.flipkart.zjsonpatch;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 
 class InPlaceApplyProcessor implements JsonPatchProcessor {
 
     private JsonElement target;
     private EnumSet<CompatibilityFlags> flags;
 
+    // the path of the container resolved last and the nodes along it, from which the next resolution resumes
+    private JsonPointer cursorPath;
+    private JsonElement[] cursor = new JsonElement[8];
+
+    // the array modified by the previous operation and the path that operation targeted; further operations on
+    // the array are batched in splice
+    private JsonPointer arrayPath;
+    private JsonArray array;
+    private ArraySplice splice;
+
+    // inverses of the modifications made so far, in order, if recording
+    private List<PatchOperation> undoLog;
+
     InPlaceApplyProcessor(JsonElement target) {
         this(target, CompatibilityFlags.defaults());
     }
@@ -39,20 +57,148 @@ class InPlaceApplyProcessor implements JsonPatchProcessor {
         return target;
     }
 
+    void setResult(JsonElement target) {
+        this.target = target;
+    }
+
+    /**
+     * Records the inverse of every subsequent modification, for {@link #undo()} and {@link #inverse()}.
+     */
+    void recordUndo() {
+        undoLog = new ArrayList<PatchOperation>();
+    }
+
+    /**
+     * Reverts all modifications recorded since {@link #recordUndo()}, in reverse order.
+     */
+    void undo() {
+        flush();
+        InPlaceApplyProcessor undoing = new InPlaceApplyProcessor(target, flags);
+        for (int idx = undoLog.size() - 1; idx >= 0; idx--) {
+            // recorded values have been detached from the document, so they can be moved back into it
+            JsonPatch.process(undoLog.get(idx), undoing, false);
+        }
+        undoing.flush();
+        replaceDocument(undoing.result());
+        undoLog.clear();
+    }
+
+    /**
+     * @return A patch reverting all modifications recorded since {@link #recordUndo()}.
+     */
+    Patch inverse() {
+        List<PatchOperation> operations = new ArrayList<PatchOperation>(undoLog);
+        Collections.reverse(operations);
+        return new Patch(operations);
+    }
+
+    /** Records the inverse of setting {@code path}, whose previous value is {@code old}, or null if absent. */
+    private void recordSet(JsonPointer path, JsonElement old) {
+        if (undoLog != null)
+            undoLog.add(old == null ? PatchOperation.remove(path) : PatchOperation.replace(path, old));
+    }
+
+    private void replaceDocument(JsonElement document) {
+        flush();
+        recordSet(JsonPointer.ROOT, target);
+        target = document;
+        cursorPath = null;
+    }
+
+    @Override
+    public void flush() {
+        if (splice != null)
+            splice.commit();
+        splice = null;
+        array = null;
+        arrayPath = null;
+    }
+
     @Override
     public void move(JsonPointer fromPath, JsonPointer toPath) throws JsonPointerEvaluationException {
-    	JsonElement valueNode = fromPath.evaluate(target);
+        flush();
+        JsonElement valueNode = fromPath.evaluate(target);
         remove(fromPath);
         set(toPath, valueNode, Operation.MOVE);
+
+        if (undoLog != null) {
+            // the inverses recorded are adding the value back at fromPath, then reverting the set at toPath
+            PatchOperation unset = undoLog.remove(undoLog.size() - 1);
+            undoLog.remove(undoLog.size() - 1);
+            if (unset.getOperation() == Operation.REMOVE) {
+                undoLog.add(PatchOperation.move(unset.getPath(), fromPath));
+            } else {
+                // the value stays in the document, so the inverse needs a copy of its own
+                undoLog.add(PatchOperation.add(fromPath, valueNode.deepCopy()));
+                undoLog.add(unset);
+            }
+        }
     }
 
     @Override
     public void copy(JsonPointer fromPath, JsonPointer toPath) throws JsonPointerEvaluationException {
-    	JsonElement valueNode = fromPath.evaluate(target);
-    	JsonElement valueToCopy = valueNode != null ? valueNode.deepCopy() : null;
+        flush();
+        JsonElement valueNode = fromPath.evaluate(target);
+        JsonElement valueToCopy = valueNode != null ? copyOf(valueNode) : null;
         set(toPath, valueToCopy, Operation.COPY);
     }
 
+    /**
+     * Resolves the parent of {@code path}, which an operation is about to modify. Evaluation resumes from the
+     * longest prefix shared with the previously resolved parent: operations only modify the children of the
+     * container they resolve, so the nodes on the path to it stay in place.
+     */
+    private JsonElement resolveParent(JsonPointer path) throws JsonPointerEvaluationException {
+        int depth = path.size() - 1;
+        int from = cursorPath == null ? 0 : path.commonPrefix(cursorPath, Math.min(depth, cursorPath.size() - 1));
+        if (cursor.length <= depth)
+            cursor = Arrays.copyOf(cursor, Math.max(depth + 1, 2 * cursor.length));
+        cursor[0] = target;
+
+        // on failure the cursor is left partially overwritten
+        cursorPath = null;
+        path.evaluate(target, cursor[from], from, depth, cursor);
+        JsonElement parent = prepareForUpdate(path, cursor, depth);
+        cursorPath = path;
+        return parent;
+    }
+
+    /**
+     * Prepares the container at {@code nodes[depth]} for an operation on its child {@code path}. {@code nodes}
+     * holds the nodes along {@code path} from the document root; implementations that replace any of them must
+     * update {@code nodes} accordingly.
+     */
+    JsonElement prepareForUpdate(JsonPointer path, JsonElement[] nodes, int depth) {
+        return nodes[depth];
+    }
+
+    /**
+     * Copies a value of the document for a {@link Operation#COPY} operation.
+     */
+    JsonElement copyOf(JsonElement value) {
+        return value.deepCopy();
+    }
+
+    /**
+     * Returns the elements of the parent array of {@code path} if the previous operation modified that array, starting a
+     * splice on its second consecutive operation. Otherwise writes back any pending splice and returns null.
+     */
+    private List<JsonElement> pendingElements(JsonPointer path) {
+        if (array != null && path.isSibling(arrayPath)) {
+            if (splice == null)
+                splice = new ArraySplice(array);
+            return splice;
+        }
+        flush();
+        return null;
+    }
+
+    private List<JsonElement> elements(JsonPointer path, JsonElement arrayNode) {
+        arrayPath = path;
+        array = arrayNode.getAsJsonArray();
+        return array.asList();
+    }
+
     private static String show(JsonElement value) {
         if (value == null || value.isJsonNull())
             return "null";
@@ -66,7 +212,8 @@ class InPlaceApplyProcessor implements JsonPatchProcessor {
 
     @Override
     public void test(JsonPointer path, JsonElement value) throws JsonPointerEvaluationException {
-    	JsonElement valueNode = path.evaluate(target);
+        flush();
+        JsonElement valueNode = path.evaluate(target);
         if (!valueNode.equals(value))
             throw new JsonPatchApplicationException(
                     "Expected " + show(value) + " but found " + show(valueNode), Operation.TEST, path);
@@ -80,27 +227,36 @@ class InPlaceApplyProcessor implements JsonPatchProcessor {
     @Override
     public void replace(JsonPointer path, JsonElement value) throws JsonPointerEvaluationException {
         if (path.isRoot()) {
-            target = value;
+            replaceDocument(value);
             return;
         }
 
-        JsonElement parentNode = path.getParent().evaluate(target);
         JsonPointer.RefToken token = path.last();
-        if (parentNode.isJsonObject()) {
-            if (!flags.contains(CompatibilityFlags.ALLOW_MISSING_TARGET_OBJECT_ON_REPLACE) &&
-                    !parentNode.getAsJsonObject().has(token.getField()))
-                throw new JsonPatchApplicationException(
-                        "Missing field \"" + token.getField() + "\"", Operation.REPLACE, path.getParent());
-            parentNode.getAsJsonObject().add(token.getField(), value);
-        } else if (parentNode.isJsonArray()) {
-            if (token.getIndex() >= parentNode.getAsJsonArray().size())
+        List<JsonElement> elements = pendingElements(path);
+        if (elements == null) {
+            JsonElement parentNode = resolveParent(path);
+            if (parentNode.isJsonObject()) {
+                if (!flags.contains(CompatibilityFlags.ALLOW_MISSING_TARGET_OBJECT_ON_REPLACE) &&
+                        !parentNode.getAsJsonObject().has(token.getField()))
+                    throw new JsonPatchApplicationException(
+                            "Missing field \"" + token.getField() + "\"", Operation.REPLACE, path.getParent());
+                if (undoLog != null)
+                    recordSet(path, parentNode.getAsJsonObject().get(token.getField()));
+                parentNode.getAsJsonObject().add(token.getField(), value);
+                return;
+            } else if (!parentNode.isJsonArray()) {
                 throw new JsonPatchApplicationException(
-                        "Array index " + token.getIndex() + " out of bounds", Operation.REPLACE, path.getParent());
-            parentNode.getAsJsonArray().set(token.getIndex(), value);
-        } else {
-            throw new JsonPatchApplicationException(
-                    "Can't reference past scalar value", Operation.REPLACE, path.getParent());
+                        "Can't reference past scalar value", Operation.REPLACE, path.getParent());
+            }
+            elements = elements(path, parentNode);
         }
+        if (token.getIndex() == JsonPointer.LAST_INDEX)
+            throw new JsonPatchApplicationException("Array index - out of bounds", Operation.REPLACE, path.getParent());
+        if (token.getIndex() >= elements.size())
+            throw new JsonPatchApplicationException(
+                    "Array index " + token.getIndex() + " out of bounds", Operation.REPLACE, path.getParent());
+        JsonElement old = elements.set(token.getIndex(), value == null ? JsonNull.INSTANCE : value);
+        recordSet(path, old);
     }
 
     @Override
@@ -108,76 +264,73 @@ class InPlaceApplyProcessor implements JsonPatchProcessor {
         if (path.isRoot())
             throw new JsonPatchApplicationException("Cannot remove document root", Operation.REMOVE, path);
 
-        JsonElement parentNode = path.getParent().evaluate(target);
         JsonPointer.RefToken token = path.last();
-        if (parentNode.isJsonObject()) {
-            if (flags.contains(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT) && !parentNode.getAsJsonObject().has(token.getField()))
+        List<JsonElement> elements = pendingElements(path);
+        if (elements == null) {
+            JsonElement parentNode = resolveParent(path);
+            if (parentNode.isJsonObject()) {
+                if (flags.contains(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT) && !parentNode.getAsJsonObject().has(token.getField()))
+                    throw new JsonPatchApplicationException(
+                            "Missing field " + token.getField(), Operation.REMOVE, path.getParent());
+                JsonElement old = parentNode.getAsJsonObject().remove(token.getField());
+                if (undoLog != null && old != null)
+                    undoLog.add(PatchOperation.add(path, old));
+                return;
+            } else if (!parentNode.isJsonArray()) {
                 throw new JsonPatchApplicationException(
-                        "Missing field " + token.getField(), Operation.REMOVE, path.getParent());
-            parentNode.getAsJsonObject().remove(token.getField());
-        }
-        else if (parentNode.isJsonArray()) {
-            if (!flags.contains(CompatibilityFlags.REMOVE_NONE_EXISTING_ARRAY_ELEMENT) &&
-                    token.getIndex() >= parentNode.getAsJsonArray().size())
-                throw new JsonPatchApplicationException(
-                        "Array index " + token.getIndex() + " out of bounds", Operation.REMOVE, path.getParent());
-            if (token.getIndex() >= parentNode.getAsJsonArray().size()) {
-            	// ignore
-            } else {
-            	parentNode.getAsJsonArray().remove(token.getIndex());
+                        "Cannot reference past scalar value", Operation.REMOVE, path.getParent());
             }
-        } else {
+            elements = elements(path, parentNode);
+        }
+        // "-" names the element past the end, which never exists
+        if (token.getIndex() == JsonPointer.LAST_INDEX)
+            throw new JsonPatchApplicationException("Array index - out of bounds", Operation.REMOVE, path.getParent());
+        if (!flags.contains(CompatibilityFlags.REMOVE_NONE_EXISTING_ARRAY_ELEMENT) &&
+                token.getIndex() >= elements.size())
             throw new JsonPatchApplicationException(
-                    "Cannot reference past scalar value", Operation.REMOVE, path.getParent());
+                    "Array index " + token.getIndex() + " out of bounds", Operation.REMOVE, path.getParent());
+        if (token.getIndex() < elements.size()) {
+            JsonElement old = elements.remove(token.getIndex());
+            if (undoLog != null)
+                undoLog.add(PatchOperation.add(path, old));
         }
     }
 
     private void set(JsonPointer path, JsonElement value, Operation forOp) throws JsonPointerEvaluationException {
-        if (path.isRoot())
-            target = value;
-        else {
-            JsonElement parentNode = path.getParent().evaluate(target);
-            if (!(parentNode.isJsonArray() || parentNode.isJsonObject()))
-                throw new JsonPatchApplicationException("Cannot reference past scalar value", forOp, path.getParent());
-            else if (parentNode.isJsonArray())
-                addToArray(path, value, parentNode);
-            else
-                addToObject(path, parentNode, value);
+        if (path.isRoot()) {
+            replaceDocument(value);
+            return;
         }
-    }
 
-    private void addToObject(JsonPointer path, JsonElement node, JsonElement value) {
-        String key = path.last().getField();
-        node.getAsJsonObject().add(key, value);
+        List<JsonElement> elements = pendingElements(path);
+        if (elements == null) {
+            JsonElement parentNode = resolveParent(path);
+            if (parentNode.isJsonObject()) {
+                if (undoLog != null)
+                    recordSet(path, parentNode.getAsJsonObject().get(path.last().getField()));
+                parentNode.getAsJsonObject().add(path.last().getField(), value);
+                return;
+            } else if (!parentNode.isJsonArray()) {
+                throw new JsonPatchApplicationException("Cannot reference past scalar value", forOp, path.getParent());
+            }
+            elements = elements(path, parentNode);
+        }
+        addToArray(path, value, elements);
     }
 
-    private void addToArray(JsonPointer path, JsonElement value, JsonElement parentNode) {
-        final JsonArray target = parentNode.getAsJsonArray();
+    private void addToArray(JsonPointer path, JsonElement value, List<JsonElement> elements) {
         int idx = path.last().getIndex();
-
         if (idx == JsonPointer.LAST_INDEX) {
             // see http://tools.ietf.org/html/rfc6902#section-4.1
-            target.add(value);
-        } else {
-            if (idx > target.size())
-                throw new JsonPatchApplicationException(
-                        "Array index " + idx + " out of bounds", Operation.ADD, path.getParent());
-            
-            // Shift elements to the right to make space for the new element
-            for (int i = target.size() - 1; i >= idx; i--) {
-            	if (i+1 >= target.size()) {
-            		target.add(target.get(i));
-            	} else {
-            		target.set(i + 1, target.get(i));
-            	}
-            }
-            
-            // Insert the new element at the specified index
-            if (idx >= target.size()) {
-            	target.add(value);
-            } else {
-            	target.set(idx, value);
-            }
+            idx = elements.size();
+            if (undoLog != null)
+                path = path.getParent().append(idx);
+        } else if (idx > elements.size()) {
+            throw new JsonPatchApplicationException(
+                    "Array index " + idx + " out of bounds", Operation.ADD, path.getParent());
         }
+        elements.add(idx, value == null ? JsonNull.INSTANCE : value);
+        if (undoLog != null)
+            undoLog.add(PatchOperation.remove(path));
     }
 }
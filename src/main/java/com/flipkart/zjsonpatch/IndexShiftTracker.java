@@ -0,0 +1,123 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks how the array adds and removes of a diff shift indices, for {@link JsonDiff}'s move normalization.
+ *
+ * <p>When a remove and a later add (or vice versa) are merged into one move, the move takes the place of
+ * the earlier diff, so the other diff's array indices must be corrected for every add (-1) and remove (+1)
+ * on the same array that lies between the two. Adds and removes are grouped by their parent pointer in a
+ * trie, and each group keeps these shifts in a {@link FenwickTree} over diff positions. Correcting a path
+ * then costs O(log n) per token instead of a scan of every diff in between, and diffs merged into moves
+ * are simply discarded from their group.
+ */
+final class IndexShiftTracker {
+    private final Node root = new Node();
+    private final Node[] groups;
+    private final int[] ranks;
+    private final int[] shifts;
+
+    IndexShiftTracker(List<Diff> diffs) {
+        final int size = diffs.size();
+        groups = new Node[size];
+        ranks = new int[size];
+        shifts = new int[size];
+
+        Map<Node, List<Integer>> members = new HashMap<Node, List<Integer>>();
+        for (int i = 0; i < size; i++) {
+            Diff diff = diffs.get(i);
+            if (Operation.ADD != diff.getOperation() && Operation.REMOVE != diff.getOperation()) continue;
+            JsonPointer path = diff.getPath();
+            if (path.isRoot() || !path.last().isArrayIndex()) continue;
+
+            Node group = root;
+            for (int k = 0; k < path.size() - 1; k++) {
+                group = group.getOrCreateChild(path.get(k));
+            }
+            List<Integer> positions = members.get(group);
+            if (positions == null) {
+                positions = new ArrayList<Integer>();
+                members.put(group, positions);
+            }
+            groups[i] = group;
+            ranks[i] = positions.size();
+            shifts[i] = Operation.ADD == diff.getOperation() ? -1 : 1;
+            positions.add(i);
+        }
+
+        for (Map.Entry<Node, List<Integer>> entry : members.entrySet()) {
+            Node group = entry.getKey();
+            List<Integer> positions = entry.getValue();
+            group.positions = new int[positions.size()];
+            group.shifts = new FenwickTree(positions.size());
+            for (int rank = 0; rank < positions.size(); rank++) {
+                int position = positions.get(rank);
+                group.positions[rank] = position;
+                group.shifts.add(rank, shifts[position]);
+            }
+        }
+    }
+
+    /**
+     * Stops accounting for the diff at the given position, once it has been merged into a move.
+     */
+    void discard(int position) {
+        Node group = groups[position];
+        if (group == null || shifts[position] == 0) return;
+        group.shifts.add(ranks[position], -shifts[position]);
+        shifts[position] = 0;
+    }
+
+    /**
+     * Adjusts every array index of {@code path} by the net shift of the adds and removes on that array
+     * at diff positions {@code startIdx} through {@code endIdx}.
+     */
+    JsonPointer adjust(JsonPointer path, int startIdx, int endIdx) {
+        List<JsonPointer.RefToken> tokens = null;
+        Node node = root;
+        for (int k = 0; k < path.size() && node != null; k++) {
+            if (node.positions != null) {
+                int shift = node.sum(startIdx, endIdx);
+                if (shift != 0) {
+                    if (tokens == null) tokens = path.decompose();
+                    int currValue = tokens.get(k).getIndex();
+                    tokens.set(k, new JsonPointer.RefToken(Integer.toString(currValue + shift)));
+                }
+            }
+            node = node.children == null ? null : node.children.get(path.get(k));
+        }
+        return tokens == null ? path : new JsonPointer(tokens);
+    }
+
+    private static final class Node {
+        private Map<JsonPointer.RefToken, Node> children;
+        // positions (ascending) and shifts of the adds and removes whose parent is this node
+        private int[] positions;
+        private FenwickTree shifts;
+
+        Node getOrCreateChild(JsonPointer.RefToken token) {
+            if (children == null) children = new HashMap<JsonPointer.RefToken, Node>();
+            Node child = children.get(token);
+            if (child == null) {
+                child = new Node();
+                children.put(token, child);
+            }
+            return child;
+        }
+
+        int sum(int startIdx, int endIdx) {
+            if (startIdx > endIdx) return 0;
+            return shifts.prefixSum(lowerBound(endIdx + 1)) - shifts.prefixSum(lowerBound(startIdx));
+        }
+
+        private int lowerBound(int position) {
+            int idx = Arrays.binarySearch(positions, position);
+            return idx >= 0 ? idx : -idx - 1;
+        }
+    }
+}
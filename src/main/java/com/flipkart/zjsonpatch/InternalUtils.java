@@ -1,15 +1,19 @@
 package com.flipkart.zjsonpatch;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 
+import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
 
 class InternalUtils {
 
+    // reads and writes elements as they are, honouring the reader's and writer's own settings such as leniency
+    // and null serialization
+    static final TypeAdapter<JsonElement> ELEMENT_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
     static List<JsonElement> toList(JsonArray input) {
         int size = input.size();
         List<JsonElement> toReturn = new ArrayList<JsonElement>(size);
@@ -18,41 +22,4 @@ class InternalUtils {
         }
         return toReturn;
     }
-
-    static List<JsonElement> longestCommonSubsequence(final List<JsonElement> a, final List<JsonElement> b) {
-        if (a == null || b == null) {
-            throw new NullPointerException("List must not be null for longestCommonSubsequence");
-        }
-
-        List<JsonElement> toReturn = new LinkedList<JsonElement>();
-
-        int aSize = a.size();
-        int bSize = b.size();
-        int temp[][] = new int[aSize + 1][bSize + 1];
-
-        for (int i = 1; i <= aSize; i++) {
-            for (int j = 1; j <= bSize; j++) {
-                if (i == 0 || j == 0) {
-                    temp[i][j] = 0;
-                } else if (a.get(i - 1).equals(b.get(j - 1))) {
-                    temp[i][j] = temp[i - 1][j - 1] + 1;
-                } else {
-                    temp[i][j] = Math.max(temp[i][j - 1], temp[i - 1][j]);
-                }
-            }
-        }
-        int i = aSize, j = bSize;
-        while (i > 0 && j > 0) {
-            if (a.get(i - 1).equals(b.get(j - 1))) {
-                toReturn.add(a.get(i - 1));
-                i--;
-                j--;
-            } else if (temp[i - 1][j] > temp[i][j - 1])
-                i--;
-            else
-                j--;
-        }
-        Collections.reverse(toReturn);
-        return toReturn;
-    }
 }
@@ -16,14 +16,17 @@
 
 package com.flipkart.zjsonpatch;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-
-import org.apache.commons.collections4.ListUtils;
+import java.util.Set;
+import java.util.concurrent.RecursiveAction;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
@@ -37,9 +40,36 @@ public final class JsonDiff {
 
     private final List<Diff> diffs = new ArrayList<Diff>();
     private final EnumSet<DiffFlags> flags;
-
-    private JsonDiff(EnumSet<DiffFlags> flags) {
+    private final DiffOptions options;
+    private final Fingerprints fingerprints;
+    private final WorkBudget budget;
+    // source arrays diffed by key; their positions are unstable while the patch is applied
+    private final Set<JsonArray> keyedArrays = Collections.newSetFromMap(new IdentityHashMap<JsonArray, Boolean>());
+    // subtrees diffed by parallel tasks, in the order their diffs are spliced in; only used by tasks
+    private final List<SubtreeTask> forks;
+    // receives diffs as they are found, if they need no normalization; otherwise they are collected in diffs
+    private final OperationConsumer consumer;
+
+    private JsonDiff(EnumSet<DiffFlags> flags, DiffOptions options, OperationConsumer consumer) {
         this.flags = flags.clone();
+        this.options = options;
+        this.consumer = consumer;
+        this.fingerprints = new Fingerprints();
+        this.budget = new WorkBudget(options.getMaxArrayWork(), options.getMaxDiffWork());
+        this.forks = null;
+    }
+
+    private JsonDiff(JsonDiff parent) {
+        this.flags = parent.flags;
+        this.options = parent.options;
+        this.fingerprints = parent.fingerprints.fork();
+        this.budget = parent.budget;
+        this.forks = new ArrayList<SubtreeTask>();
+        this.consumer = null;
+    }
+
+    private interface OperationConsumer {
+        void accept(PatchOperation operation);
     }
 
     public static JsonArray asJson(final JsonElement source, final JsonElement target) {
@@ -47,17 +77,87 @@ public final class JsonDiff {
     }
 
     public static JsonArray asJson(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags) {
-        JsonDiff diff = new JsonDiff(flags);
+        return asJson(source, target, flags, DiffOptions.defaults());
+    }
+
+    public static JsonArray asJson(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags, DiffOptions options) {
+        final JsonArray patch = new JsonArray();
+        generate(source, target, flags, options, new OperationConsumer() {
+            @Override
+            public void accept(PatchOperation operation) {
+                patch.add(operation.toJson());
+            }
+        });
+        return patch;
+    }
+
+    public static Patch asPatch(final JsonElement source, final JsonElement target) {
+        return asPatch(source, target, DiffFlags.defaults());
+    }
+
+    public static Patch asPatch(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags) {
+        return asPatch(source, target, flags, DiffOptions.defaults());
+    }
+
+    /**
+     * Diffs two documents like {@link #asJson(JsonElement, JsonElement, EnumSet, DiffOptions)}, but returns the
+     * patch as a typed {@link Patch}, which {@link JsonPatch#apply(Patch, JsonElement)} applies without any
+     * JSON rendering or parsing.
+     *
+     * @since 0.4.17
+     */
+    public static Patch asPatch(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags, DiffOptions options) {
+        final List<PatchOperation> operations = new ArrayList<PatchOperation>();
+        generate(source, target, flags, options, new OperationConsumer() {
+            @Override
+            public void accept(PatchOperation operation) {
+                operations.add(operation);
+            }
+        });
+        return new Patch(operations);
+    }
+
+    public static void asJson(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags, DiffSink sink) {
+        asJson(source, target, flags, DiffOptions.defaults(), sink);
+    }
+
+    /**
+     * Diffs two documents, passing the operations of the patch to {@code sink} one at a time instead of
+     * returning them as an array. See {@link DiffSink} for when the patch is streamed without being
+     * held in memory.
+     *
+     * @since 0.4.17
+     */
+    public static void asJson(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags, DiffOptions options,
+                              final DiffSink sink) {
+        sink.begin();
+        generate(source, target, flags, options, new OperationConsumer() {
+            @Override
+            public void accept(PatchOperation operation) {
+                sink.accept(operation.toJson());
+            }
+        });
+        sink.end();
+    }
+
+    private static void generate(final JsonElement source, final JsonElement target, EnumSet<DiffFlags> flags, DiffOptions options,
+                                 OperationConsumer consumer) {
+        boolean streaming = flags.contains(DiffFlags.OMIT_MOVE_OPERATION) && flags.contains(DiffFlags.OMIT_COPY_OPERATION)
+                && options.getForkJoinPool() == null;
+        JsonDiff diff = new JsonDiff(flags, options, streaming ? consumer : null);
         if (source == null && target != null) {
             // return add node at root pointing to the target
-            diff.diffs.add(Diff.generateDiff(Operation.ADD, JsonPointer.ROOT, target));
+            diff.addDiff(Diff.generateDiff(Operation.ADD, JsonPointer.ROOT, target));
         }
         if (source != null && target == null) {
             // return remove node at root pointing to the source
-            diff.diffs.add(Diff.generateDiff(Operation.REMOVE, JsonPointer.ROOT, source));
+            diff.addDiff(Diff.generateDiff(Operation.REMOVE, JsonPointer.ROOT, source));
         }
         if (source != null && target != null) {
-            diff.generateDiffs(JsonPointer.ROOT, source, target);
+            if (options.getForkJoinPool() != null)
+                diff.generateDiffsInParallel(source, target);
+            else
+                diff.generateDiffs(PathNode.ROOT, source, target);
 
             if (!flags.contains(DiffFlags.OMIT_MOVE_OPERATION))
                 // Merging remove & add to move operation
@@ -66,20 +166,26 @@ public final class JsonDiff {
             if (!flags.contains(DiffFlags.OMIT_COPY_OPERATION))
                 // Introduce copy operation
                 diff.introduceCopyOperation(source, target);
-
-            if (flags.contains(DiffFlags.ADD_EXPLICIT_REMOVE_ADD_ON_REPLACE))
-                // Split replace into remove and add instructions
-                diff.introduceExplicitRemoveAndAddOperation();
         }
-        return diff.getJsonNodes();
+        for (Diff collected : diff.diffs) {
+            diff.emit(collected, consumer);
+        }
+    }
+
+    private void addDiff(Diff diff) {
+        if (consumer != null)
+            emit(diff, consumer);
+        else
+            diffs.add(diff);
     }
 
-    private static JsonPointer getMatchingValuePath(Map<JsonElement, JsonPointer> unchangedValues, JsonElement value) {
-        return unchangedValues.get(value);
+    private JsonPointer getMatchingValuePath(Map<Fingerprints.Key, PathNode> unchangedValues, JsonElement value) {
+        PathNode path = unchangedValues.get(fingerprints.key(value));
+        return path == null ? null : path.toPointer();
     }
 
     private void introduceCopyOperation(JsonElement source, JsonElement target) {
-        Map<JsonElement, JsonPointer> unchangedValues = getUnchangedPart(source, target);
+        Map<Fingerprints.Key, PathNode> unchangedValues = getUnchangedPart(source, target);
 
         for (int i = 0; i < diffs.size(); i++) {
             Diff diff = diffs.get(i);
@@ -134,17 +240,16 @@ public final class JsonDiff {
         return !isSame;
     }
 
-    private static Map<JsonElement, JsonPointer> getUnchangedPart(JsonElement source, JsonElement target) {
-        Map<JsonElement, JsonPointer> unchangedValues = new HashMap<JsonElement, JsonPointer>();
-        computeUnchangedValues(unchangedValues, JsonPointer.ROOT, source, target);
+    private Map<Fingerprints.Key, PathNode> getUnchangedPart(JsonElement source, JsonElement target) {
+        Map<Fingerprints.Key, PathNode> unchangedValues = new HashMap<Fingerprints.Key, PathNode>();
+        computeUnchangedValues(unchangedValues, PathNode.ROOT, source, target);
         return unchangedValues;
     }
 
-    private static void computeUnchangedValues(Map<JsonElement, JsonPointer> unchangedValues, JsonPointer path, JsonElement source, JsonElement target) {
-        if (source.equals(target)) {
-            if (!unchangedValues.containsKey(target)) {
-                unchangedValues.put(target, path);
-            }
+    private void computeUnchangedValues(Map<Fingerprints.Key, PathNode> unchangedValues, PathNode path, JsonElement source, JsonElement target) {
+        if (fingerprints.equal(source, target)) {
+            addUnchangedValue(unchangedValues, path, target);
+            indexUnchangedChildren(unchangedValues, path, target);
             return;
         }
 
@@ -165,21 +270,53 @@ public final class JsonDiff {
         }
     }
 
-    private static void computeArray(Map<JsonElement, JsonPointer> unchangedValues, JsonPointer path, JsonArray source, JsonArray target) {
+    private void addUnchangedValue(Map<Fingerprints.Key, PathNode> unchangedValues, PathNode path, JsonElement value) {
+        Fingerprints.Key key = fingerprints.key(value);
+        if (!unchangedValues.containsKey(key)) {
+            unchangedValues.put(key, path);
+        }
+    }
+
+    // Everything inside an unchanged value is unchanged too, so its large enough parts are copy sources as well
+    private void indexUnchangedChildren(Map<Fingerprints.Key, PathNode> unchangedValues, PathNode path, JsonElement value) {
+        final int minCopySize = options.getMinCopySize();
+        if (value.isJsonArray()) {
+            JsonArray array = value.getAsJsonArray();
+            for (int i = 0; i < array.size(); i++) {
+                JsonElement child = array.get(i);
+                if (fingerprints.size(child) < minCopySize) continue;
+                PathNode childPath = path.append(i);
+                addUnchangedValue(unchangedValues, childPath, child);
+                indexUnchangedChildren(unchangedValues, childPath, child);
+            }
+        } else if (value.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> field : value.getAsJsonObject().entrySet()) {
+                JsonElement child = field.getValue();
+                if (fingerprints.size(child) < minCopySize) continue;
+                PathNode childPath = path.append(field.getKey());
+                addUnchangedValue(unchangedValues, childPath, child);
+                indexUnchangedChildren(unchangedValues, childPath, child);
+            }
+        }
+    }
+
+    private void computeArray(Map<Fingerprints.Key, PathNode> unchangedValues, PathNode path, JsonArray source, JsonArray target) {
+        if (keyedArrays.contains(source)) return;
+
         final int size = Math.min(source.size(), target.size());
 
         for (int i = 0; i < size; i++) {
-            JsonPointer currPath = path.append(i);
+            PathNode currPath = path.append(i);
             computeUnchangedValues(unchangedValues, currPath, source.get(i), target.get(i));
         }
     }
 
-    private static void computeObject(Map<JsonElement, JsonPointer> unchangedValues, JsonPointer path, JsonObject source, JsonObject target) {
+    private void computeObject(Map<Fingerprints.Key, PathNode> unchangedValues, PathNode path, JsonObject source, JsonObject target) {
         final Iterator<String> firstFields = source.keySet().iterator();
         while (firstFields.hasNext()) {
             String name = firstFields.next();
             if (target.has(name)) {
-                JsonPointer currPath = path.append(name);
+                PathNode currPath = path.append(name);
                 computeUnchangedValues(unchangedValues, currPath, source.get(name), target.get(name));
             }
         }
@@ -188,169 +325,190 @@ public final class JsonDiff {
     /**
      * This method merge 2 diffs ( remove then add, or vice versa ) with same value into one Move operation,
      * all the core logic resides here only
+     * <p>
+     * Every add or remove is paired with the first later remove or add of an equal value. Pending adds and
+     * removes are indexed by value fingerprint, so finding that partner is O(1) expected rather than a scan
+     * of the remaining diffs. Merged partners are blanked out and dropped at the end, keeping the positions
+     * of all other diffs stable while pairing, and the index shifts between partners come from an
+     * {@link IndexShiftTracker}.
      */
     private void introduceMoveOperation() {
-        for (int i = 0; i < diffs.size(); i++) {
-            Diff diff1 = diffs.get(i);
-
-            // if not remove OR add, move to next diff
-            if (!(Operation.REMOVE == diff1.getOperation() ||
-                    Operation.ADD == diff1.getOperation())) {
-                continue;
-            }
-
-            for (int j = i + 1; j < diffs.size(); j++) {
-                Diff diff2 = diffs.get(j);
-                if (!diff1.getValue().equals(diff2.getValue())) {
-                    continue;
-                }
-
-                Diff moveDiff = null;
-                if (Operation.REMOVE == diff1.getOperation() &&
-                        Operation.ADD == diff2.getOperation()) {
-                    JsonPointer relativePath = computeRelativePath(diff2.getPath(), i + 1, j - 1, diffs);
-                    moveDiff = new Diff(Operation.MOVE, diff1.getPath(), relativePath);
-
-                } else if (Operation.ADD == diff1.getOperation() &&
-                        Operation.REMOVE == diff2.getOperation()) {
-                    JsonPointer relativePath = computeRelativePath(diff2.getPath(), i, j - 1, diffs); // diff1's add should also be considered
-                    moveDiff = new Diff(Operation.MOVE, relativePath, diff1.getPath());
-                }
-                if (moveDiff != null) {
-                    diffs.remove(j);
-                    diffs.set(i, moveDiff);
-                    break;
-                }
-            }
-        }
-    }
-
-    /**
-     * This method splits a {@link Operation#REPLACE} operation within a diff into a {@link Operation#REMOVE}
-     * and {@link Operation#ADD} in order, respectively.
-     * Does nothing if {@link Operation#REPLACE} op does not contain a from value
-     */
-    private void introduceExplicitRemoveAndAddOperation() {
-        List<Diff> updatedDiffs = new ArrayList<Diff>();
-        for (Diff diff : diffs) {
-            if (!diff.getOperation().equals(Operation.REPLACE) || diff.getSrcValue() == null) {
-                updatedDiffs.add(diff);
-                continue;
-            }
-            //Split into two #REMOVE and #ADD
-            updatedDiffs.add(new Diff(Operation.REMOVE, diff.getPath(), diff.getSrcValue()));
-            updatedDiffs.add(new Diff(Operation.ADD, diff.getPath(), diff.getValue()));
+        final int size = diffs.size();
+        Map<Fingerprints.Key, ArrayDeque<Integer>> pendingAdds = new HashMap<Fingerprints.Key, ArrayDeque<Integer>>();
+        Map<Fingerprints.Key, ArrayDeque<Integer>> pendingRemoves = new HashMap<Fingerprints.Key, ArrayDeque<Integer>>();
+        // only arrays diffed by key emit moves up front; relative paths can't account for them,
+        // so nothing is paired across such a move
+        int[] nextMove = new int[size + 1];
+        nextMove[size] = size;
+        for (int i = size - 1; i >= 0; i--) {
+            nextMove[i] = Operation.MOVE == diffs.get(i).getOperation() ? i : nextMove[i + 1];
         }
-        diffs.clear();
-        diffs.addAll(updatedDiffs);
-    }
-
-    //Note : only to be used for arrays
-    //Finds the longest common Ancestor ending at Array
-    private static JsonPointer computeRelativePath(JsonPointer path, int startIdx, int endIdx, List<Diff> diffs) {
-        List<Integer> counters = new ArrayList<Integer>(path.size());
-        for (int i = 0; i < path.size(); i++) {
-            counters.add(0);
-        }
-
-        for (int i = startIdx; i <= endIdx; i++) {
+        for (int i = 0; i < size; i++) {
             Diff diff = diffs.get(i);
-            //Adjust relative path according to #ADD and #Remove
-            if (Operation.ADD == diff.getOperation() || Operation.REMOVE == diff.getOperation()) {
-                updatePath(path, diff, counters);
-            }
+            if (Operation.ADD == diff.getOperation())
+                getPending(pendingAdds, diff).addLast(i);
+            else if (Operation.REMOVE == diff.getOperation())
+                getPending(pendingRemoves, diff).addLast(i);
         }
-        return updatePathWithCounters(counters, path);
-    }
+        IndexShiftTracker indexShifts = new IndexShiftTracker(diffs);
 
-    private static JsonPointer updatePathWithCounters(List<Integer> counters, JsonPointer path) {
-        List<JsonPointer.RefToken> tokens = path.decompose();
-        for (int i = 0; i < counters.size(); i++) {
-            int value = counters.get(i);
-            if (value != 0) {
-                int currValue = tokens.get(i).getIndex();
-                tokens.set(i, new JsonPointer.RefToken(Integer.toString(currValue + value)));
-            }
-        }
-        return new JsonPointer(tokens);
-    }
+        for (int i = 0; i < size; i++) {
+            Diff diff1 = diffs.get(i);
 
-    private static void updatePath(JsonPointer path, Diff pseudo, List<Integer> counters) {
-        //find longest common prefix of both the paths
+            // if already merged, or not remove OR add, move to next diff
+            if (diff1 == null) continue;
+            ArrayDeque<Integer> candidates;
+            if (Operation.REMOVE == diff1.getOperation())
+                candidates = pendingAdds.get(fingerprints.key(diff1.getValue()));
+            else if (Operation.ADD == diff1.getOperation())
+                candidates = pendingRemoves.get(fingerprints.key(diff1.getValue()));
+            else
+                continue;
+            if (candidates == null) continue;
 
-        if (pseudo.getPath().size() <= path.size()) {
-            int idx = -1;
-            for (int i = 0; i < pseudo.getPath().size() - 1; i++) {
-                if (pseudo.getPath().get(i).equals(path.get(i))) {
-                    idx = i;
-                } else {
-                    break;
-                }
+            while (!candidates.isEmpty() && candidates.peekFirst() <= i) {
+                candidates.pollFirst();
             }
-            if (idx == pseudo.getPath().size() - 2) {
-                if (pseudo.getPath().get(pseudo.getPath().size() - 1).isArrayIndex()) {
-                    updateCounters(pseudo, pseudo.getPath().size() - 1, counters);
-                }
+            if (candidates.isEmpty() || candidates.peekFirst() >= nextMove[i + 1]) continue;
+
+            int j = candidates.pollFirst();
+            Diff diff2 = diffs.get(j);
+            Diff moveDiff;
+            if (Operation.REMOVE == diff1.getOperation()) {
+                JsonPointer relativePath = indexShifts.adjust(diff2.getPath(), i + 1, j - 1);
+                moveDiff = new Diff(Operation.MOVE, diff1.getPath(), relativePath);
+            } else {
+                JsonPointer relativePath = indexShifts.adjust(diff2.getPath(), i, j - 1); // diff1's add should also be considered
+                moveDiff = new Diff(Operation.MOVE, relativePath, diff1.getPath());
             }
+            indexShifts.discard(i);
+            indexShifts.discard(j);
+            diffs.set(j, null);
+            diffs.set(i, moveDiff);
         }
+        diffs.removeAll(Collections.singleton(null));
     }
 
-    private static void updateCounters(Diff pseudo, int idx, List<Integer> counters) {
-        if (Operation.ADD == pseudo.getOperation()) {
-            counters.set(idx, counters.get(idx) - 1);
-        } else {
-            if (Operation.REMOVE == pseudo.getOperation()) {
-                counters.set(idx, counters.get(idx) + 1);
-            }
+    private ArrayDeque<Integer> getPending(Map<Fingerprints.Key, ArrayDeque<Integer>> pending, Diff diff) {
+        Fingerprints.Key key = fingerprints.key(diff.getValue());
+        ArrayDeque<Integer> positions = pending.get(key);
+        if (positions == null) {
+            positions = new ArrayDeque<Integer>();
+            pending.put(key, positions);
         }
+        return positions;
     }
 
-    private JsonArray getJsonNodes() {
-        final JsonArray patch = new JsonArray();
-        for (Diff diff : diffs) {
-            JsonObject jsonNode = getJsonNode(diff, flags);
-            patch.add(jsonNode);
+    /**
+     * Renders a diff to the consumer. With {@link DiffFlags#ADD_EXPLICIT_REMOVE_ADD_ON_REPLACE}, this splits a
+     * {@link Operation#REPLACE} operation into a {@link Operation#REMOVE} and {@link Operation#ADD} in order,
+     * respectively. Does nothing if {@link Operation#REPLACE} op does not contain a from value
+     */
+    private void emit(Diff diff, OperationConsumer consumer) {
+        if (flags.contains(DiffFlags.ADD_EXPLICIT_REMOVE_ADD_ON_REPLACE)
+                && diff.getOperation().equals(Operation.REPLACE) && diff.getSrcValue() != null) {
+            //Split into two #REMOVE and #ADD
+            consumer.accept(getOperation(new Diff(Operation.REMOVE, diff.getPath(), diff.getSrcValue()), flags));
+            consumer.accept(getOperation(new Diff(Operation.ADD, diff.getPath(), diff.getValue()), flags));
+            return;
         }
-        return patch;
+        consumer.accept(getOperation(diff, flags));
     }
 
-    private static JsonObject getJsonNode(Diff diff, EnumSet<DiffFlags> flags) {
-        JsonObject jsonNode = new JsonObject();
-        jsonNode.addProperty(Constants.OP, diff.getOperation().rfcName());
-
+    private static PatchOperation getOperation(Diff diff, EnumSet<DiffFlags> flags) {
         switch (diff.getOperation()) {
             case MOVE:
             case COPY:
-                jsonNode.addProperty(Constants.FROM, diff.getPath().toString());    // required {from} only in case of Move Operation
-                jsonNode.addProperty(Constants.PATH, diff.getToPath().toString());  // destination Path
-                break;
+                // the diff's path is the source, its toPath the destination
+                return new PatchOperation(diff.getOperation(), diff.getToPath(), diff.getPath(), null, null);
 
             case REMOVE:
-                jsonNode.addProperty(Constants.PATH, diff.getPath().toString());
-                if (!flags.contains(DiffFlags.OMIT_VALUE_ON_REMOVE))
-                    jsonNode.add(Constants.VALUE, diff.getValue());
-                break;
+                JsonElement removed = flags.contains(DiffFlags.OMIT_VALUE_ON_REMOVE) ? null : diff.getValue();
+                return new PatchOperation(Operation.REMOVE, diff.getPath(), null, removed, null);
 
             case REPLACE:
-                if (flags.contains(DiffFlags.ADD_ORIGINAL_VALUE_ON_REPLACE)) {
-                    jsonNode.add(Constants.FROM_VALUE, diff.getSrcValue());
-                }
+                JsonElement replaced = flags.contains(DiffFlags.ADD_ORIGINAL_VALUE_ON_REPLACE) ? diff.getSrcValue() : null;
+                return new PatchOperation(Operation.REPLACE, diff.getPath(), null, diff.getValue(), replaced);
+
             case ADD:
             case TEST:
-                jsonNode.addProperty(Constants.PATH, diff.getPath().toString());
-                jsonNode.add(Constants.VALUE, diff.getValue());
-                break;
+                return new PatchOperation(diff.getOperation(), diff.getPath(), null, diff.getValue(), null);
 
             default:
                 // Safety net
                 throw new IllegalArgumentException("Unknown operation specified:" + diff.getOperation());
         }
+    }
+
+    /**
+     * Diffs the documents on the configured pool. Differing subtrees above the size threshold are diffed
+     * by tasks of their own, each collecting diffs in a list of its own; a task splices the lists of its
+     * subtasks into its own at the positions where it would have diffed the subtrees itself, so the result
+     * is identical to a sequential diff. Fingerprints of both documents are computed upfront and shared
+     * read-only by all tasks.
+     */
+    private void generateDiffsInParallel(JsonElement source, JsonElement target) {
+        fingerprints.of(source);
+        fingerprints.of(target);
+        SubtreeTask root = new SubtreeTask(new JsonDiff(this), PathNode.ROOT, source, target);
+        options.getForkJoinPool().invoke(root);
+        diffs.addAll(root.worker.diffs);
+        keyedArrays.addAll(root.worker.keyedArrays);
+    }
+
+    private void generateChildDiffs(PathNode path, JsonElement source, JsonElement target) {
+        if (forks != null && fingerprints.size(source) + fingerprints.size(target) >= options.getMinParallelSize()) {
+            SubtreeTask task = new SubtreeTask(new JsonDiff(this), path, source, target);
+            task.position = diffs.size();
+            task.fork();
+            forks.add(task);
+        } else {
+            generateDiffs(path, source, target);
+        }
+    }
+
+    private void joinForks() {
+        if (forks.isEmpty()) return;
+
+        List<Diff> merged = new ArrayList<Diff>();
+        int next = 0;
+        for (SubtreeTask task : forks) {
+            task.join();
+            merged.addAll(diffs.subList(next, task.position));
+            merged.addAll(task.worker.diffs);
+            keyedArrays.addAll(task.worker.keyedArrays);
+            next = task.position;
+        }
+        merged.addAll(diffs.subList(next, diffs.size()));
+        diffs.clear();
+        diffs.addAll(merged);
+        forks.clear();
+    }
+
+    private static final class SubtreeTask extends RecursiveAction {
+        private final JsonDiff worker;
+        private final PathNode path;
+        private final JsonElement source;
+        private final JsonElement target;
+        // index in the parent's diffs at which this subtree's diffs belong
+        private int position;
+
+        SubtreeTask(JsonDiff worker, PathNode path, JsonElement source, JsonElement target) {
+            this.worker = worker;
+            this.path = path;
+            this.source = source;
+            this.target = target;
+        }
 
-        return jsonNode;
+        @Override
+        protected void compute() {
+            worker.generateDiffs(path, source, target);
+            worker.joinForks();
+        }
     }
 
-    private void generateDiffs(JsonPointer path, JsonElement source, JsonElement target) {
-        if (!source.equals(target)) {
+    private void generateDiffs(PathNode path, JsonElement source, JsonElement target) {
+        if (!fingerprints.equal(source, target)) {
             final NodeType sourceType = NodeType.getNodeType(source);
             final NodeType targetType = NodeType.getNodeType(target);
 
@@ -362,64 +520,73 @@ public final class JsonDiff {
                 compareObjects(path, source.getAsJsonObject(), target.getAsJsonObject());
             } else {
                 //can be replaced
-                if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
-                    diffs.add(new Diff(Operation.TEST, path, source));
-                diffs.add(Diff.generateDiff(Operation.REPLACE, path, source, target));
+                replace(path, source, target);
             }
         }
     }
 
-    private void compareArray(JsonPointer path, JsonArray source, JsonArray target) {
-        List<JsonElement> lcs = getLCS(source, target);
+    private void replace(PathNode path, JsonElement source, JsonElement target) {
+        if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
+            addDiff(new Diff(Operation.TEST, path.toPointer(), source));
+        addDiff(Diff.generateDiff(Operation.REPLACE, path.toPointer(), source, target));
+    }
+
+    private void compareArray(PathNode path, JsonArray source, JsonArray target) {
+        ArrayKeyExtractor keyExtractor = options.getArrayKeyExtractor();
+        if (keyExtractor != null && compareArrayByKey(path, source, target, keyExtractor))
+            return;
+
+        int[] matches = getLCS(source, target);
+        if (matches == null) {
+            // aligning the elements exceeds the work budget
+            replace(path, source, target);
+            return;
+        }
         int srcIdx = 0;
         int targetIdx = 0;
-        int lcsIdx = 0;
         int srcSize = source.size();
         int targetSize = target.size();
-        int lcsSize = lcs.size();
 
         int pos = 0;
-        while (lcsIdx < lcsSize) {
-        	JsonElement lcsNode = lcs.get(lcsIdx);
-        	JsonElement srcNode = source.get(srcIdx);
-        	JsonElement targetNode = target.get(targetIdx);
-
-
-            if (lcsNode.equals(srcNode) && lcsNode.equals(targetNode)) { // Both are same as lcs node, nothing to do here
+        for (int lcsSrcIdx = 0; lcsSrcIdx < srcSize; lcsSrcIdx++) {
+            int lcsTargetIdx = matches[lcsSrcIdx];
+            if (lcsTargetIdx == Lcs.NO_MATCH) continue;
+
+            while (srcIdx < lcsSrcIdx && targetIdx < lcsTargetIdx) {
+                //both are unequal to lcs node
+                PathNode currPath = path.append(pos);
+                generateChildDiffs(currPath, source.get(srcIdx), target.get(targetIdx));
                 srcIdx++;
                 targetIdx++;
-                lcsIdx++;
                 pos++;
-            } else {
-                if (lcsNode.equals(srcNode)) { // src node is same as lcs, but not targetNode
-                    //addition
-                    JsonPointer currPath = path.append(pos);
-                    diffs.add(Diff.generateDiff(Operation.ADD, currPath, targetNode));
-                    pos++;
-                    targetIdx++;
-                } else if (lcsNode.equals(targetNode)) { //targetNode node is same as lcs, but not src
-                    //removal,
-                    JsonPointer currPath = path.append(pos);
-                    if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
-                        diffs.add(new Diff(Operation.TEST, currPath, srcNode));
-                    diffs.add(Diff.generateDiff(Operation.REMOVE, currPath, srcNode));
-                    srcIdx++;
-                } else {
-                    JsonPointer currPath = path.append(pos);
-                    //both are unequal to lcs node
-                    generateDiffs(currPath, srcNode, targetNode);
-                    srcIdx++;
-                    targetIdx++;
-                    pos++;
-                }
             }
+            while (targetIdx < lcsTargetIdx) { // src node is same as lcs, but not targetNode
+                //addition
+                PathNode currPath = path.append(pos);
+                addDiff(Diff.generateDiff(Operation.ADD, currPath.toPointer(), target.get(targetIdx)));
+                pos++;
+                targetIdx++;
+            }
+            while (srcIdx < lcsSrcIdx) { //targetNode node is same as lcs, but not src
+                //removal,
+                PathNode currPath = path.append(pos);
+                JsonElement srcNode = source.get(srcIdx);
+                if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
+                    addDiff(new Diff(Operation.TEST, currPath.toPointer(), srcNode));
+                addDiff(Diff.generateDiff(Operation.REMOVE, currPath.toPointer(), srcNode));
+                srcIdx++;
+            }
+            // Both are same as lcs node, nothing to do here
+            srcIdx++;
+            targetIdx++;
+            pos++;
         }
 
         while ((srcIdx < srcSize) && (targetIdx < targetSize)) {
         	JsonElement srcNode = source.get(srcIdx);
         	JsonElement targetNode = target.get(targetIdx);
-            JsonPointer currPath = path.append(pos);
-            generateDiffs(currPath, srcNode, targetNode);
+            PathNode currPath = path.append(pos);
+            generateChildDiffs(currPath, srcNode, targetNode);
             srcIdx++;
             targetIdx++;
             pos++;
@@ -428,54 +595,215 @@ public final class JsonDiff {
         removeRemaining(path, pos, srcIdx, srcSize, source);
     }
 
-    private void removeRemaining(JsonPointer path, int pos, int srcIdx, int srcSize, JsonArray source) {
+    private void removeRemaining(PathNode path, int pos, int srcIdx, int srcSize, JsonArray source) {
         while (srcIdx < srcSize) {
-            JsonPointer currPath = path.append(pos);
+            PathNode currPath = path.append(pos);
             if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
-                diffs.add(new Diff(Operation.TEST, currPath, source.get(srcIdx)));
-            diffs.add(Diff.generateDiff(Operation.REMOVE, currPath, source.get(srcIdx)));
+                addDiff(new Diff(Operation.TEST, currPath.toPointer(), source.get(srcIdx)));
+            addDiff(Diff.generateDiff(Operation.REMOVE, currPath.toPointer(), source.get(srcIdx)));
             srcIdx++;
         }
     }
 
-    private int addRemaining(JsonPointer path, JsonArray target, int pos, int targetIdx, int targetSize) {
+    private int addRemaining(PathNode path, JsonArray target, int pos, int targetIdx, int targetSize) {
         while (targetIdx < targetSize) {
         	JsonElement jsonNode = target.get(targetIdx);
-            JsonPointer currPath = path.append(pos);
-            diffs.add(Diff.generateDiff(Operation.ADD, currPath, jsonNode.deepCopy()));
+            PathNode currPath = path.append(pos);
+            addDiff(Diff.generateDiff(Operation.ADD, currPath.toPointer(), jsonNode.deepCopy()));
             pos++;
             targetIdx++;
         }
         return pos;
     }
 
-    private void compareObjects(JsonPointer path, JsonObject source, JsonObject target) {
+    /**
+     * Diffs two arrays by joining their elements on keys. Elements whose key disappears are removed,
+     * then the elements outside a longest run of matched elements that kept their relative order
+     * are moved to their target positions and new elements are added, and finally every matched
+     * pair is diffed at its target position.
+     *
+     * @return {@code false}, having emitted nothing, if some element has no key or a key is repeated.
+     */
+    private boolean compareArrayByKey(PathNode path, JsonArray source, JsonArray target, ArrayKeyExtractor keyExtractor) {
+        Map<Fingerprints.Key, Integer> sourceIndices = new HashMap<Fingerprints.Key, Integer>();
+        Map<Fingerprints.Key, Integer> targetIndices = new HashMap<Fingerprints.Key, Integer>();
+        Fingerprints.Key[] sourceKeys = getKeys(path, source, keyExtractor, sourceIndices);
+        if (sourceKeys == null) return false;
+        Fingerprints.Key[] targetKeys = getKeys(path, target, keyExtractor, targetIndices);
+        if (targetKeys == null) return false;
+        keyedArrays.add(source);
+
+        // remove elements whose key is gone; the retained ones keep their source order
+        int[] retainedIdx = new int[source.size()];
+        int retainedSize = 0;
+        for (int srcIdx = 0; srcIdx < source.size(); srcIdx++) {
+            if (targetIndices.containsKey(sourceKeys[srcIdx])) {
+                retainedIdx[srcIdx] = retainedSize++;
+                continue;
+            }
+            PathNode currPath = path.append(retainedSize);
+            if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
+                addDiff(new Diff(Operation.TEST, currPath.toPointer(), source.get(srcIdx)));
+            addDiff(Diff.generateDiff(Operation.REMOVE, currPath.toPointer(), source.get(srcIdx)));
+        }
+
+        // retained index of every target element, or -1 for new ones
+        int[] sequence = new int[target.size()];
+        for (int targetIdx = 0; targetIdx < sequence.length; targetIdx++) {
+            Integer srcIdx = sourceIndices.get(targetKeys[targetIdx]);
+            sequence[targetIdx] = srcIdx == null ? -1 : retainedIdx[srcIdx];
+        }
+        boolean[] stays = getLongestIncreasingRun(sequence, retainedSize);
+
+        // Every element that has to be moved or added is placed right after its predecessor in the
+        // target array. Slots order these destinations among the original retained positions: the
+        // group of retained element r holds its original slot followed by the elements placed after
+        // it, and group -1 holds the elements placed before all retained ones.
+        int[] anchors = new int[sequence.length];
+        int[] chainIdx = new int[sequence.length];
+        int[] groupSizes = new int[retainedSize + 1];
+        int anchor = -1;
+        for (int targetIdx = 0; targetIdx < sequence.length; targetIdx++) {
+            int retained = sequence[targetIdx];
+            if (retained >= 0 && stays[retained]) {
+                anchor = retained;
+            } else {
+                anchors[targetIdx] = anchor;
+                chainIdx[targetIdx] = groupSizes[anchor + 1]++;
+            }
+        }
+        int[] groupStart = new int[retainedSize + 2];
+        for (int group = 0; group <= retainedSize; group++) {
+            groupStart[group + 1] = groupStart[group] + groupSizes[group] + (group > 0 ? 1 : 0);
+        }
+
+        FenwickTree occupied = new FenwickTree(groupStart[retainedSize + 1]);
+        for (int retained = 0; retained < retainedSize; retained++) {
+            occupied.add(groupStart[retained + 1], 1);
+        }
+        for (int targetIdx = 0; targetIdx < sequence.length; targetIdx++) {
+            int retained = sequence[targetIdx];
+            if (retained >= 0 && stays[retained]) continue;
+
+            int slot = groupStart[anchors[targetIdx] + 1] + (anchors[targetIdx] >= 0 ? 1 : 0) + chainIdx[targetIdx];
+            if (retained >= 0) {
+                int originalSlot = groupStart[retained + 1];
+                int from = occupied.prefixSum(originalSlot);
+                occupied.add(originalSlot, -1);
+                int to = occupied.prefixSum(slot);
+                occupied.add(slot, 1);
+                if (from != to)
+                    addDiff(new Diff(Operation.MOVE, path.append(from).toPointer(), path.append(to).toPointer()));
+            } else {
+                int to = occupied.prefixSum(slot);
+                occupied.add(slot, 1);
+                addDiff(Diff.generateDiff(Operation.ADD, path.append(to).toPointer(), target.get(targetIdx)));
+            }
+        }
+
+        for (int targetIdx = 0; targetIdx < sequence.length; targetIdx++) {
+            if (sequence[targetIdx] < 0) continue;
+            JsonElement srcNode = source.get(sourceIndices.get(targetKeys[targetIdx]));
+            generateChildDiffs(path.append(targetIdx), srcNode, target.get(targetIdx));
+        }
+        return true;
+    }
+
+    private Fingerprints.Key[] getKeys(PathNode path, JsonArray array, ArrayKeyExtractor keyExtractor, Map<Fingerprints.Key, Integer> indices) {
+        Fingerprints.Key[] keys = new Fingerprints.Key[array.size()];
+        for (int i = 0; i < keys.length; i++) {
+            JsonElement key = keyExtractor.extract(path.toPointer(), array.get(i));
+            if (key == null)
+                return null;
+            keys[i] = fingerprints.key(key);
+            if (indices.put(keys[i], i) != null)
+                return null;
+        }
+        return keys;
+    }
+
+    /**
+     * Finds a longest strictly increasing subsequence of the non-negative values in {@code sequence}.
+     *
+     * @return A flag for every value in {@code [0, size)} telling whether it is part of that subsequence.
+     */
+    private static boolean[] getLongestIncreasingRun(int[] sequence, int size) {
+        int[] tails = new int[sequence.length];
+        int[] previous = new int[sequence.length];
+        int length = 0;
+        for (int i = 0; i < sequence.length; i++) {
+            int value = sequence[i];
+            if (value < 0) continue;
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sequence[tails[mid]] < value)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) length++;
+        }
+
+        boolean[] result = new boolean[size];
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            result[sequence[i]] = true;
+        }
+        return result;
+    }
+
+    private void compareObjects(PathNode path, JsonObject source, JsonObject target) {
         Iterator<String> keysFromSrc = source.keySet().iterator();
         while (keysFromSrc.hasNext()) {
             String key = keysFromSrc.next();
             if (!target.has(key)) {
                 //remove case
-                JsonPointer currPath = path.append(key);
+                PathNode currPath = path.append(key);
                 if (flags.contains(DiffFlags.EMIT_TEST_OPERATIONS))
-                    diffs.add(new Diff(Operation.TEST, currPath, source.get(key)));
-                diffs.add(Diff.generateDiff(Operation.REMOVE, currPath, source.get(key)));
+                    addDiff(new Diff(Operation.TEST, currPath.toPointer(), source.get(key)));
+                addDiff(Diff.generateDiff(Operation.REMOVE, currPath.toPointer(), source.get(key)));
                 continue;
             }
-            JsonPointer currPath = path.append(key);
-            generateDiffs(currPath, source.get(key), target.get(key));
+            PathNode currPath = path.append(key);
+            generateChildDiffs(currPath, source.get(key), target.get(key));
         }
         Iterator<String> keysFromTarget = target.keySet().iterator();
         while (keysFromTarget.hasNext()) {
             String key = keysFromTarget.next();
             if (!source.has(key)) {
                 //add case
-                JsonPointer currPath = path.append(key);
-                diffs.add(Diff.generateDiff(Operation.ADD, currPath, target.get(key)));
+                PathNode currPath = path.append(key);
+                addDiff(Diff.generateDiff(Operation.ADD, currPath.toPointer(), target.get(key)));
             }
         }
     }
 
-    private static List<JsonElement> getLCS(final JsonElement first, final JsonElement second) {
-        return ListUtils.longestCommonSubsequence(InternalUtils.toList((JsonArray) first), InternalUtils.toList((JsonArray) second));
+    /**
+     * Aligns the elements of two arrays. Elements are interned to int ids by fingerprint first,
+     * so the alignment itself never deep-compares two elements.
+     *
+     * @return The alignment, or {@code null} if it exceeds the work budget.
+     */
+    private int[] getLCS(final JsonArray first, final JsonArray second) {
+        Map<Fingerprints.Key, Integer> ids = new HashMap<Fingerprints.Key, Integer>();
+        return Lcs.align(internElements(ids, first), internElements(ids, second), options.getMaxLcsCells(),
+                budget.startArray());
+    }
+
+    private int[] internElements(Map<Fingerprints.Key, Integer> ids, JsonArray array) {
+        int[] result = new int[array.size()];
+        for (int i = 0; i < result.length; i++) {
+            Fingerprints.Key key = fingerprints.key(array.get(i));
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = ids.size();
+                ids.put(key, id);
+            }
+            result[i] = id;
+        }
+        return result;
     }
 }
@@ -16,11 +16,16 @@
 
 package com.flipkart.zjsonpatch;
 
+import java.io.IOException;
 import java.util.EnumSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * User: gopi.vishwakarma
@@ -31,112 +36,163 @@ public final class JsonPatch {
     private JsonPatch() {
     }
 
-    private static JsonElement getPatchStringAttr(JsonElement jsonNode, String attr) {
-    	JsonElement child = getPatchAttr(jsonNode, attr);
+    private static void process(JsonElement patch, JsonPatchProcessor processor, EnumSet<CompatibilityFlags> flags)
+            throws InvalidJsonPatchException {
+        process(patch, processor, flags, true, null);
+    }
 
-        if (!(child.isJsonPrimitive() && child.getAsJsonPrimitive().isString()))
-            throw new InvalidJsonPatchException("Invalid JSON Patch payload (non-text '" + attr + "' field)");
+    /**
+     * @param copyValues Whether values are copied into the document; if not, the document takes ownership
+     *                   of the patch's values.
+     * @param pointers   The cache to parse the patch's pointers with, or {@code null}.
+     */
+    private static void process(JsonElement patch, JsonPatchProcessor processor, EnumSet<CompatibilityFlags> flags,
+                                boolean copyValues, JsonPointerCache pointers) throws InvalidJsonPatchException {
 
-        return child;
+        if (!patch.isJsonArray())
+            throw new InvalidJsonPatchException("Invalid JSON Patch payload (not an array)");
+        Iterator<JsonElement> operations = patch.getAsJsonArray().iterator();
+        try {
+            while (operations.hasNext()) {
+                process(PatchOperation.fromJson(operations.next(), flags, pointers), processor, copyValues);
+            }
+        } finally {
+            processor.flush();
+        }
     }
 
-    private static JsonElement getPatchAttr(JsonElement jsonNode, String attr) {
-    	if (!jsonNode.isJsonObject()) {
-    		throw new InvalidJsonPatchException("Invalid JSON Patch payload (missing '" + attr + "' field)");
-    	}
-    	JsonElement child = jsonNode.getAsJsonObject().get(attr);
-        if (child == null)
-            throw new InvalidJsonPatchException("Invalid JSON Patch payload (missing '" + attr + "' field)");
+    private static void process(Patch patch, JsonPatchProcessor processor) {
+        try {
+            for (PatchOperation operation : patch) {
+                process(operation, processor, true);
+            }
+        } finally {
+            processor.flush();
+        }
+    }
 
-        return child;
+    /**
+     * Values are parsed afresh for each operation and referenced by nothing else, so they are never copied.
+     */
+    private static void process(PatchReader patch, JsonPatchProcessor processor) throws IOException {
+        try {
+            PatchOperation operation;
+            while ((operation = patch.next()) != null) {
+                process(operation, processor, false);
+            }
+        } finally {
+            processor.flush();
+        }
     }
 
-    private static JsonElement getPatchAttrWithDefault(JsonElement jsonNode, String attr, JsonElement defaultValue) {
-    	if (!jsonNode.isJsonObject()) {
-    		return defaultValue;
-    	}
-    	JsonElement child = jsonNode.getAsJsonObject().get(attr);
-        if (child == null)
-            return defaultValue;
-        else
-            return child;
+    static void process(PatchOperation operation, JsonPatchProcessor processor, boolean copyValues) {
+        try {
+            processUnwrapped(operation, processor, copyValues);
+        }
+        catch (JsonPointerEvaluationException e) {
+            throw new JsonPatchApplicationException(e.getMessage(), operation.getOperation(), e.getPath());
+        }
     }
-    
-    private static String getTextValue(JsonElement jsonElement) {
-    	if (jsonElement.isJsonPrimitive()) {
-    		if (jsonElement.getAsJsonPrimitive().isString()) {
-    			return jsonElement.getAsJsonPrimitive().getAsString();
-    		}
-    	}
-    	return null;
+
+    private static void processUnwrapped(PatchOperation operation, JsonPatchProcessor processor, boolean copyValues)
+            throws JsonPointerEvaluationException {
+        JsonPointer path = operation.getPath();
+        switch (operation.getOperation()) {
+            case REMOVE:
+                processor.remove(path);
+                break;
+
+            case ADD:
+                processor.add(path, copyValues ? operation.getValue().deepCopy() : operation.getValue());
+                break;
+
+            case REPLACE:
+                processor.replace(path, copyValues ? operation.getValue().deepCopy() : operation.getValue());
+                break;
+
+            case MOVE:
+                processor.move(operation.getFrom(), path);
+                break;
+
+            case COPY:
+                processor.copy(operation.getFrom(), path);
+                break;
+
+            case TEST:
+                // only compared, never copied
+                processor.test(path, operation.getValue());
+                break;
+        }
     }
 
-    private static void process(JsonElement patch, JsonPatchProcessor processor, EnumSet<CompatibilityFlags> flags)
-            throws InvalidJsonPatchException {
+    /**
+     * Applies the operations of {@code patch} in order until one fails.
+     *
+     * @return The failure, or {@code null} if every operation was applied.
+     */
+    private static ApplyResult tryProcess(Patch patch, JsonPatchProcessor processor) {
+        List<PatchOperation> operations = patch.getOperations();
+        try {
+            for (int idx = 0; idx < operations.size(); idx++) {
+                ApplyResult failure = tryProcess(idx, operations.get(idx), processor);
+                if (failure != null)
+                    return failure;
+            }
+        } finally {
+            processor.flush();
+        }
+        return null;
+    }
 
+    private static ApplyResult tryProcess(JsonElement patch, JsonPatchProcessor processor, EnumSet<CompatibilityFlags> flags,
+                                          JsonPointerCache pointers) {
         if (!patch.isJsonArray())
-            throw new InvalidJsonPatchException("Invalid JSON Patch payload (not an array)");
-        Iterator<JsonElement> operations = patch.getAsJsonArray().iterator();
-        while (operations.hasNext()) {
-        	JsonElement jsonNode = operations.next();
-            if (!jsonNode.isJsonObject()) throw new InvalidJsonPatchException("Invalid JSON Patch payload (not an object)");
-            Operation operation = Operation.fromRfcName(getTextValue(getPatchStringAttr(jsonNode, Constants.OP)));
-            JsonPointer path = JsonPointer.parse(getTextValue(getPatchStringAttr(jsonNode, Constants.PATH)));
-
-            try {
-                switch (operation) {
-                    case REMOVE: {
-                        processor.remove(path);
-                        break;
-                    }
-
-                    case ADD: {
-                    	JsonElement value;
-                        if (!flags.contains(CompatibilityFlags.MISSING_VALUES_AS_NULLS))
-                            value = getPatchAttr(jsonNode, Constants.VALUE);
-                        else
-                            value = getPatchAttrWithDefault(jsonNode, Constants.VALUE, JsonNull.INSTANCE);
-                        processor.add(path, value.deepCopy());
-                        break;
-                    }
-
-                    case REPLACE: {
-                    	JsonElement value;
-                        if (!flags.contains(CompatibilityFlags.MISSING_VALUES_AS_NULLS))
-                            value = getPatchAttr(jsonNode, Constants.VALUE);
-                        else
-                            value = getPatchAttrWithDefault(jsonNode, Constants.VALUE, JsonNull.INSTANCE);
-                        processor.replace(path, value.deepCopy());
-                        break;
-                    }
-
-                    case MOVE: {
-                        JsonPointer fromPath = JsonPointer.parse(getTextValue(getPatchStringAttr(jsonNode, Constants.FROM)));
-                        processor.move(fromPath, path);
-                        break;
-                    }
-
-                    case COPY: {
-                        JsonPointer fromPath = JsonPointer.parse(getTextValue(getPatchStringAttr(jsonNode, Constants.FROM)));
-                        processor.copy(fromPath, path);
-                        break;
-                    }
-
-                    case TEST: {
-                    	JsonElement value;
-                        if (!flags.contains(CompatibilityFlags.MISSING_VALUES_AS_NULLS))
-                            value = getPatchAttr(jsonNode, Constants.VALUE);
-                        else
-                            value = getPatchAttrWithDefault(jsonNode, Constants.VALUE, JsonNull.INSTANCE);
-                        processor.test(path, value.deepCopy());
-                        break;
-                    }
+            return ApplyResult.failed(-1, null, null, "Invalid JSON Patch payload (not an array)");
+        JsonArray operations = patch.getAsJsonArray();
+        try {
+            for (int idx = 0; idx < operations.size(); idx++) {
+                PatchOperation operation;
+                try {
+                    operation = PatchOperation.fromJson(operations.get(idx), flags, pointers);
+                } catch (InvalidJsonPatchException e) {
+                    return ApplyResult.failed(idx, null, null, e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    // a malformed pointer, or an operation fromJson does not handle
+                    return ApplyResult.failed(idx, null, null, e.getMessage());
                 }
+                ApplyResult failure = tryProcess(idx, operation, processor);
+                if (failure != null)
+                    return failure;
             }
-            catch (JsonPointerEvaluationException e) {
-                throw new JsonPatchApplicationException(e.getMessage(), operation, e.getPath());
-            }
+        } finally {
+            processor.flush();
         }
+        return null;
+    }
+
+    private static ApplyResult tryProcess(int idx, PatchOperation operation, JsonPatchProcessor processor) {
+        try {
+            processUnwrapped(operation, processor, true);
+            return null;
+        } catch (JsonPointerEvaluationException e) {
+            return ApplyResult.failed(idx, operation.getOperation(), e.getPath(), e.getMessage());
+        } catch (JsonPatchApplicationException e) {
+            return ApplyResult.failed(idx, e.getOperation(), e.getPath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Parses and validates a patch once, for applying it to many documents.
+     *
+     * @throws InvalidJsonPatchException if {@code patch} is not a valid JSON Patch.
+     * @since 0.4.17
+     */
+    public static CompiledPatch compile(JsonElement patch, EnumSet<CompatibilityFlags> flags) throws InvalidJsonPatchException {
+        return new CompiledPatch(Patch.fromJson(patch, flags), flags);
+    }
+
+    public static CompiledPatch compile(JsonElement patch) throws InvalidJsonPatchException {
+        return compile(patch, CompatibilityFlags.defaults());
     }
 
     public static void validate(JsonElement patch, EnumSet<CompatibilityFlags> flags) throws InvalidJsonPatchException {
@@ -165,4 +221,371 @@ public final class JsonPatch {
         InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
         process(patch, processor, flags);
     }
+
+    /**
+     * Applies a patch to a copy of {@code source} like {@link #apply(JsonElement, JsonElement, EnumSet)}, parsing
+     * its pointers with {@code pointers}, so that paths already seen by the cache are not parsed again.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement apply(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                    JsonPointerCache pointers) throws JsonPatchApplicationException {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        process(patch, processor, flags, true, pointers);
+        return processor.result();
+    }
+
+    public static void applyInPlace(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                    JsonPointerCache pointers) throws JsonPatchApplicationException {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        process(patch, processor, flags, true, pointers);
+    }
+
+    /**
+     * Validates a patch as it is read from {@code patch}, without holding more than one operation in memory.
+     * The reader is left positioned after the patch.
+     *
+     * @since 0.4.17
+     */
+    public static void validate(JsonReader patch, EnumSet<CompatibilityFlags> flags) throws IOException, InvalidJsonPatchException {
+        process(new PatchReader(patch, flags, null), NoopProcessor.INSTANCE);
+    }
+
+    public static void validate(JsonReader patch) throws IOException, InvalidJsonPatchException {
+        validate(patch, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch to a copy of {@code source} like {@link #apply(JsonElement, JsonElement, EnumSet)}, reading
+     * its operations from {@code patch} one at a time: each operation is applied as soon as it has been parsed,
+     * so only one operation of the patch is held in memory. An invalid operation is reported when it is reached.
+     * The reader is left positioned after the patch.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement apply(JsonReader patch, JsonElement source, EnumSet<CompatibilityFlags> flags)
+            throws IOException, JsonPatchApplicationException {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        process(new PatchReader(patch, flags, null), processor);
+        return processor.result();
+    }
+
+    public static JsonElement apply(JsonReader patch, JsonElement source) throws IOException, JsonPatchApplicationException {
+        return apply(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch read from {@code patch} like {@link #apply(JsonReader, JsonElement, EnumSet)}, parsing its
+     * pointers with {@code pointers}.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement apply(JsonReader patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                    JsonPointerCache pointers) throws IOException, JsonPatchApplicationException {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        process(new PatchReader(patch, flags, pointers), processor);
+        return processor.result();
+    }
+
+    /**
+     * Applies a patch read from {@code patch} to {@code source} itself, like
+     * {@link #apply(JsonReader, JsonElement, EnumSet)}.
+     *
+     * @since 0.4.17
+     */
+    public static void applyInPlace(JsonReader patch, JsonElement source, EnumSet<CompatibilityFlags> flags)
+            throws IOException, JsonPatchApplicationException {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        process(new PatchReader(patch, flags, null), processor);
+    }
+
+    public static void applyInPlace(JsonReader patch, JsonElement source) throws IOException, JsonPatchApplicationException {
+        applyInPlace(patch, source, CompatibilityFlags.defaults());
+    }
+
+    public static void applyInPlace(JsonReader patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                    JsonPointerCache pointers) throws IOException, JsonPatchApplicationException {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        process(new PatchReader(patch, flags, pointers), processor);
+    }
+
+    /**
+     * Applies a patch to a copy of {@code source} like {@link #apply(Patch, JsonElement, EnumSet)}, but reports a
+     * failure in the result instead of throwing. This suits patches that are expected to fail regularly, for
+     * example because their {@link Operation#TEST} operations guard them.
+     *
+     * @since 0.4.17
+     */
+    public static ApplyResult tryApply(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        ApplyResult failure = tryProcess(patch, processor);
+        return failure != null ? failure : ApplyResult.applied(processor.result());
+    }
+
+    public static ApplyResult tryApply(Patch patch, JsonElement source) {
+        return tryApply(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch like {@link #tryApply(Patch, JsonElement, EnumSet)}; an invalid operation is reported as a
+     * failure at its index once the operations before it have been applied.
+     *
+     * @since 0.4.17
+     */
+    public static ApplyResult tryApply(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        return tryApply(patch, source, flags, null);
+    }
+
+    public static ApplyResult tryApply(JsonElement patch, JsonElement source) {
+        return tryApply(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch like {@link #tryApply(JsonElement, JsonElement, EnumSet)}, parsing its pointers with
+     * {@code pointers}.
+     *
+     * @since 0.4.17
+     */
+    public static ApplyResult tryApply(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                       JsonPointerCache pointers) {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        ApplyResult failure = tryProcess(patch, processor, flags, pointers);
+        return failure != null ? failure : ApplyResult.applied(processor.result());
+    }
+
+    /**
+     * Applies a patch to {@code source} itself like {@link #applyInPlace(Patch, JsonElement, EnumSet)}, but reports
+     * a failure in the result instead of throwing. On failure, {@code source} keeps the modifications of the
+     * operations before the failed one, as it does when {@code applyInPlace} throws; use
+     * {@link #applyInPlaceAtomically(Patch, JsonElement, EnumSet)} to have them reverted.
+     *
+     * @return The outcome; once applied, its result is {@code source}, or the value that replaced it if the patch
+     * replaces the whole document.
+     * @since 0.4.17
+     */
+    public static ApplyResult tryApplyInPlace(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        ApplyResult failure = tryProcess(patch, processor);
+        return failure != null ? failure : ApplyResult.applied(processor.result());
+    }
+
+    public static ApplyResult tryApplyInPlace(Patch patch, JsonElement source) {
+        return tryApplyInPlace(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch to {@code source} itself like {@link #tryApplyInPlace(Patch, JsonElement, EnumSet)}; an
+     * invalid operation is reported as a failure at its index once the operations before it have been applied.
+     *
+     * @since 0.4.17
+     */
+    public static ApplyResult tryApplyInPlace(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        return tryApplyInPlace(patch, source, flags, null);
+    }
+
+    public static ApplyResult tryApplyInPlace(JsonElement patch, JsonElement source) {
+        return tryApplyInPlace(patch, source, CompatibilityFlags.defaults());
+    }
+
+    public static ApplyResult tryApplyInPlace(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                              JsonPointerCache pointers) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        ApplyResult failure = tryProcess(patch, processor, flags, pointers);
+        return failure != null ? failure : ApplyResult.applied(processor.result());
+    }
+
+    /**
+     * Applies a typed patch, for example one returned by {@link JsonDiff#asPatch}, to a copy of {@code source}.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement apply(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags) throws JsonPatchApplicationException {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        process(patch, processor);
+        return processor.result();
+    }
+
+    public static JsonElement apply(Patch patch, JsonElement source) throws JsonPatchApplicationException {
+        return apply(patch, source, CompatibilityFlags.defaults());
+    }
+
+    public static void applyInPlace(Patch patch, JsonElement source) {
+        applyInPlace(patch, source, CompatibilityFlags.defaults());
+    }
+
+    public static void applyInPlace(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        process(patch, processor);
+    }
+
+    /**
+     * Applies a patch to {@code source} itself like {@link #applyInPlace(JsonElement, JsonElement, EnumSet)}, but
+     * atomically: if an operation fails, the inverses of the modifications made so far are applied before the
+     * exception is rethrown, leaving {@code source} equal to what it was. This costs time proportional to the size
+     * of the patch rather than that of the document; fields that are removed and restored move to the end of
+     * their object, though.
+     *
+     * @return A patch that reverts the modifications of {@code patch} when applied to the result.
+     * @since 0.4.17
+     */
+    public static Patch applyInPlaceAtomically(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        processor.recordUndo();
+        try {
+            process(patch, processor, flags);
+        } catch (RuntimeException e) {
+            processor.undo();
+            throw e;
+        }
+        return processor.inverse();
+    }
+
+    public static Patch applyInPlaceAtomically(JsonElement patch, JsonElement source) {
+        return applyInPlaceAtomically(patch, source, CompatibilityFlags.defaults());
+    }
+
+    public static Patch applyInPlaceAtomically(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        processor.recordUndo();
+        try {
+            process(patch, processor);
+        } catch (RuntimeException e) {
+            processor.undo();
+            throw e;
+        }
+        return processor.inverse();
+    }
+
+    public static Patch applyInPlaceAtomically(Patch patch, JsonElement source) {
+        return applyInPlaceAtomically(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch to a copy of {@code source} like {@link #apply(JsonElement, JsonElement, EnumSet)}, but moves
+     * the values of {@link Operation#ADD} and {@link Operation#REPLACE} operations into the result instead of
+     * copying them. The patch must not be used or modified afterwards, and a value must not occur more than once
+     * in it.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement applyConsuming(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags) throws JsonPatchApplicationException {
+        CopyingApplyProcessor processor = new CopyingApplyProcessor(source, flags);
+        process(patch, processor, flags, false, null);
+        return processor.result();
+    }
+
+    public static JsonElement applyConsuming(JsonElement patch, JsonElement source) throws JsonPatchApplicationException {
+        return applyConsuming(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch to {@code source} itself like {@link #applyInPlace(JsonElement, JsonElement, EnumSet)}, but
+     * moves the values of the patch into {@code source} like {@link #applyConsuming(JsonElement, JsonElement, EnumSet)}.
+     *
+     * @since 0.4.17
+     */
+    public static void applyInPlaceConsuming(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(source, flags);
+        process(patch, processor, flags, false, null);
+    }
+
+    public static void applyInPlaceConsuming(JsonElement patch, JsonElement source) {
+        applyInPlaceConsuming(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch without modifying {@code source} like {@link #apply(JsonElement, JsonElement, EnumSet)}, but
+     * copies only the containers along the paths the patch modifies instead of the whole document. The result
+     * shares all other subtrees with {@code source}, so neither may be modified while the other is in use.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement applySharing(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags) throws JsonPatchApplicationException {
+        SharingApplyProcessor processor = new SharingApplyProcessor(source, flags);
+        process(patch, processor, flags);
+        return processor.result();
+    }
+
+    public static JsonElement applySharing(JsonElement patch, JsonElement source) throws JsonPatchApplicationException {
+        return applySharing(patch, source, CompatibilityFlags.defaults());
+    }
+
+    public static JsonElement applySharing(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags) throws JsonPatchApplicationException {
+        SharingApplyProcessor processor = new SharingApplyProcessor(source, flags);
+        process(patch, processor);
+        return processor.result();
+    }
+
+    public static JsonElement applySharing(Patch patch, JsonElement source) throws JsonPatchApplicationException {
+        return applySharing(patch, source, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Applies a patch to a copy of {@code source} like {@link #apply(Patch, JsonElement, EnumSet)}, applying the
+     * operations on different fields of the root object concurrently on {@code pool}. Patches whose operations
+     * aren't independent in this way, for example because they move values between fields of the root, are
+     * applied sequentially. The result, including any exception, is the same as that of a sequential apply.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement applyInParallel(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                              ForkJoinPool pool) throws JsonPatchApplicationException {
+        return ParallelApply.apply(patch, source, flags, pool);
+    }
+
+    public static JsonElement applyInParallel(Patch patch, JsonElement source, ForkJoinPool pool) throws JsonPatchApplicationException {
+        return applyInParallel(patch, source, CompatibilityFlags.defaults(), pool);
+    }
+
+    /**
+     * Parses and validates a patch, then applies it like {@link #applyInParallel(Patch, JsonElement, EnumSet, ForkJoinPool)}.
+     *
+     * @since 0.4.17
+     */
+    public static JsonElement applyInParallel(JsonElement patch, JsonElement source, EnumSet<CompatibilityFlags> flags,
+                                              ForkJoinPool pool) throws JsonPatchApplicationException {
+        return applyInParallel(Patch.fromJson(patch, flags), source, flags, pool);
+    }
+
+    public static JsonElement applyInParallel(JsonElement patch, JsonElement source, ForkJoinPool pool) throws JsonPatchApplicationException {
+        return applyInParallel(patch, source, CompatibilityFlags.defaults(), pool);
+    }
+
+    /**
+     * Applies a patch to the document read from {@code source}, writing the result to {@code target} without
+     * holding the whole document in memory: values the patch doesn't touch are copied token by token, and only the
+     * value each operation acts on is materialized, so memory is bounded by the largest of those. An operation
+     * acts on:
+     * <ul>
+     * <li>the value at its path, for test, replace, and add or remove of an object member;</li>
+     * <li>the whole array, for add or remove of an element at an index, except that adds to the end ("-") of an
+     * array no other operation touches are streamed after its last element;</li>
+     * <li>the value containing both its source and its destination, for move and copy;</li>
+     * <li>the whole document, for any operation on the root ({@code ""}).</li>
+     * </ul>
+     * Patches acting on large values this way are better applied with {@link #apply(Patch, JsonElement, EnumSet)}.
+     * The result, including any exception, is the same as that of {@link #apply(Patch, JsonElement, EnumSet)}; if
+     * an exception is thrown, {@code target} has received incomplete output. The writer is flushed but not closed.
+     *
+     * @since 0.4.17
+     */
+    public static void applyStreaming(Patch patch, JsonReader source, JsonWriter target, EnumSet<CompatibilityFlags> flags)
+            throws IOException, JsonPatchApplicationException {
+        StreamingApply.apply(patch, source, target, flags);
+    }
+
+    public static void applyStreaming(Patch patch, JsonReader source, JsonWriter target)
+            throws IOException, JsonPatchApplicationException {
+        applyStreaming(patch, source, target, CompatibilityFlags.defaults());
+    }
+
+    public static void applyStreaming(JsonElement patch, JsonReader source, JsonWriter target, EnumSet<CompatibilityFlags> flags)
+            throws IOException, JsonPatchApplicationException {
+        applyStreaming(Patch.fromJson(patch, flags), source, target, flags);
+    }
+
+    public static void applyStreaming(JsonElement patch, JsonReader source, JsonWriter target)
+            throws IOException, JsonPatchApplicationException {
+        applyStreaming(patch, source, target, CompatibilityFlags.defaults());
+    }
 }
@@ -19,13 +19,16 @@ package com.flipkart.zjsonpatch;
 /**
  * User: holograph
  * Date: 03/08/16
+ *
+ * <p>Instances carry no stack trace: patches failing, for example on a {@link Operation#TEST} operation, are
+ * an expected outcome, and the operation and path identify where they failed.
  */
 public class JsonPatchApplicationException extends RuntimeException {
     final Operation operation;
     final JsonPointer path;
 
     public JsonPatchApplicationException(String message, Operation operation, JsonPointer path) {
-        super(message);
+        super(message, null, false, false);
         this.operation = operation;
         this.path = path;
     }
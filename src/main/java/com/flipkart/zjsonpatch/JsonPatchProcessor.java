@@ -25,4 +25,9 @@ interface JsonPatchProcessor {
     void move(JsonPointer fromPath, JsonPointer toPath) throws JsonPointerEvaluationException;
     void copy(JsonPointer fromPath, JsonPointer toPath) throws JsonPointerEvaluationException;
     void test(JsonPointer path, JsonElement value) throws JsonPointerEvaluationException;
+
+    /**
+     * Completes any work deferred by previous operations; called once the patch has been processed, or has failed.
+     */
+    void flush();
 }
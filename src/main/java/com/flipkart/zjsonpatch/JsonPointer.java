@@ -2,9 +2,9 @@ package com.flipkart.zjsonpatch;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import com.google.gson.JsonElement;
 
@@ -39,11 +39,13 @@ import com.google.gson.JsonElement;
  */
 public class JsonPointer {
     private final RefToken[] tokens;
+    private String string;
 
     /** A JSON pointer representing the root node of a JSON document */
     public final static JsonPointer ROOT = new JsonPointer(new RefToken[] {});
 
-    private JsonPointer(RefToken[] tokens) {
+    /** Constructs a pointer from the given reference tokens, which are not copied. */
+    JsonPointer(RefToken[] tokens) {
         this.tokens = tokens;
     }
 
@@ -64,47 +66,50 @@ public class JsonPointer {
      * @throws IllegalArgumentException The specified JSON Pointer is invalid.
      */
     public static JsonPointer parse(String path) throws IllegalArgumentException {
-        StringBuilder reftoken = null;
+        if (path.isEmpty())
+            return ROOT;
+        // Require leading slash
+        if (path.charAt(0) != '/')
+            throw new IllegalArgumentException("Missing leading slash");
+
         List<RefToken> result = new ArrayList<RefToken>();
+        int start = 1;
+        while (true) {
+            int end = path.indexOf('/', start);
+            if (end < 0)
+                end = path.length();
+            String rawToken = path.substring(start, end);
+            result.add(new RefToken(rawToken.indexOf('~') < 0 ? rawToken : decode(path, start, end), rawToken));
+            if (end == path.length())
+                break;
+            start = end + 1;
+        }
 
-        for (int i = 0; i < path.length(); ++i) {
-            char c = path.charAt(i);
+        JsonPointer pointer = new JsonPointer(result);
+        // the escape sequences are unambiguous, so a valid pointer renders exactly as it was parsed
+        pointer.string = path;
+        return pointer;
+    }
 
-            // Require leading slash
-            if (i == 0) {
-                if (c != '/') throw new IllegalArgumentException("Missing leading slash");
-                reftoken = new StringBuilder();
+    /** Decodes the escape sequences of the reference token {@code path[start, end)}. */
+    private static String decode(String path, int start, int end) {
+        StringBuilder reftoken = new StringBuilder(end - start);
+        for (int i = start; i < end; ++i) {
+            char c = path.charAt(i);
+            if (c != '~') {
+                reftoken.append(c);
                 continue;
             }
-
-            switch (c) {
-                // Escape sequences
-                case '~':
-                    switch (path.charAt(++i)) {
-                        case '0': reftoken.append('~'); break;
-                        case '1': reftoken.append('/'); break;
-                        default:
-                            throw new IllegalArgumentException("Invalid escape sequence ~" + path.charAt(i) + " at index " + i);
-                    }
-                    break;
-
-                // New reftoken
-                case '/':
-                    result.add(new RefToken(reftoken.toString()));
-                    reftoken.setLength(0);
-                    break;
-
+            if (++i == end)
+                throw new IllegalArgumentException("Unterminated escape sequence at index " + (i - 1));
+            switch (path.charAt(i)) {
+                case '0': reftoken.append('~'); break;
+                case '1': reftoken.append('/'); break;
                 default:
-                    reftoken.append(c);
-                    break;
+                    throw new IllegalArgumentException("Invalid escape sequence ~" + path.charAt(i) + " at index " + i);
             }
         }
-
-        if (reftoken == null)
-            return ROOT;
-
-        result.add(RefToken.parse(reftoken.toString()));
-        return new JsonPointer(result);
+        return reftoken.toString();
     }
 
     /**
@@ -137,6 +142,28 @@ public class JsonPointer {
         return append(Integer.toString(index));
     }
 
+    /**
+     * Creates a JSON pointer to the node {@code relative} points to within the node referenced by this instance.
+     */
+    JsonPointer append(JsonPointer relative) {
+        RefToken[] newTokens = Arrays.copyOf(tokens, tokens.length + relative.tokens.length);
+        System.arraycopy(relative.tokens, 0, newTokens, tokens.length, relative.tokens.length);
+        return new JsonPointer(newTokens);
+    }
+
+    /**
+     * Creates a JSON pointer from the reference tokens of this instance following the first {@code start} ones,
+     * relative to the node those point to.
+     */
+    JsonPointer suffix(int start) {
+        return start == 0 ? this : new JsonPointer(Arrays.copyOfRange(tokens, start, tokens.length));
+    }
+
+    /** Creates a JSON pointer from the first {@code end} reference tokens of this instance. */
+    JsonPointer prefix(int end) {
+        return end == tokens.length ? this : new JsonPointer(Arrays.copyOf(tokens, end));
+    }
+
     /** Returns the number of reference tokens comprising this instance. */
     int size() {
         return tokens.length;
@@ -150,12 +177,17 @@ public class JsonPointer {
      *  representation of this JSON pointer.
      */
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        for (RefToken token : tokens) {
-            sb.append('/');
-            sb.append(token);
+        String result = string;
+        if (result == null) {
+            StringBuilder sb = new StringBuilder();
+            for (RefToken token : tokens) {
+                sb.append('/');
+                sb.append(token);
+            }
+            // a racing thread computes the same string
+            string = result = sb.toString();
         }
-        return sb.toString();
+        return result;
     }
 
     /**
@@ -204,7 +236,7 @@ public class JsonPointer {
     private void error(int atToken, String message, JsonElement document) throws JsonPointerEvaluationException {
         throw new JsonPointerEvaluationException(
                 message,
-                new JsonPointer(Arrays.copyOf(tokens, atToken)),
+                prefix(atToken),
                 document);
     }
 
@@ -219,30 +251,97 @@ public class JsonPointer {
      * @throws JsonPointerEvaluationException The pointer could not be evaluated.
      */
     public JsonElement evaluate(final JsonElement document) throws JsonPointerEvaluationException {
-    	JsonElement current = document;
+        return evaluate(document, document, 0, tokens.length, null);
+    }
 
+    /**
+     * Resolves the node represented by this instance like {@link #evaluate(JsonElement)}, but reports a
+     * pointer that doesn't resolve in the result instead of throwing.
+     *
+     * @param document The target document against which to evaluate the JSON pointer.
+     * @return The node resolved, or the reason evaluation failed.
+     * @since 0.4.17
+     */
+    public EvaluationResult tryEvaluate(final JsonElement document) {
+        JsonElement current = document;
         for (int idx = 0; idx < tokens.length; ++idx) {
-            final RefToken token = tokens[idx];
-
-            if (current.isJsonArray()) {
-                if (!token.isArrayIndex())
-                    error(idx, "Can't reference field \"" + token.getField() + "\" on array", document);
-                if (token.getIndex() == LAST_INDEX || token.getIndex() >= current.getAsJsonArray().size())
-                    error(idx, "Array index " + token.toString() + " is out of bounds", document);
-                current = current.getAsJsonArray().get(token.getIndex());
-            }
-            else if (current.isJsonObject()) {
-                if (!current.getAsJsonObject().has(token.getField()))
-                    error(idx,"Missing field \"" + token.getField() + "\"", document);
-                current = current.getAsJsonObject().get(token.getField());
-            }
-            else
-                error(idx, "Can't reference past scalar value", document);
+            JsonElement next = child(current, tokens[idx]);
+            if (next == null)
+                return EvaluationResult.failed(this, missingChild(current, tokens[idx]), prefix(idx));
+            current = next;
+        }
+        return EvaluationResult.resolved(this, current);
+    }
+
+    /**
+     * Evaluates the tokens {@code [from, to)} of this pointer, starting at {@code start}, the node the first
+     * {@code from} tokens resolve to in {@code document}. If {@code nodes} is not null, the node resolved after
+     * each token {@code idx} is stored at {@code nodes[idx + 1]}.
+     */
+    JsonElement evaluate(JsonElement document, JsonElement start, int from, int to, JsonElement[] nodes)
+            throws JsonPointerEvaluationException {
+        JsonElement current = start;
+
+        for (int idx = from; idx < to; ++idx) {
+            JsonElement next = child(current, tokens[idx]);
+            if (next == null)
+                error(idx, missingChild(current, tokens[idx]), document);
+            current = next;
+
+            if (nodes != null)
+                nodes[idx + 1] = current;
         }
 
         return current;
     }
 
+    /**
+     * Evaluates many pointers against {@code document} at once, like {@link PointerSet#evaluate}.
+     *
+     * @return The result of evaluating each distinct pointer, in the order of {@code pointers}.
+     * @since 0.4.17
+     */
+    public static Map<JsonPointer, EvaluationResult> evaluateAll(Collection<JsonPointer> pointers, JsonElement document) {
+        return new PointerSet(pointers).evaluate(document);
+    }
+
+    /** Returns the child of {@code node} {@code token} refers to, or null if there is none. */
+    static JsonElement child(JsonElement node, RefToken token) {
+        if (node.isJsonArray()) {
+            if (!token.isArrayIndex() || token.getIndex() == LAST_INDEX || token.getIndex() >= node.getAsJsonArray().size())
+                return null;
+            return node.getAsJsonArray().get(token.getIndex());
+        }
+        // objects never hold Java nulls
+        return node.isJsonObject() ? node.getAsJsonObject().get(token.getField()) : null;
+    }
+
+    /** Returns why {@link #child} found no child of {@code node} for {@code token}. */
+    static String missingChild(JsonElement node, RefToken token) {
+        if (node.isJsonArray()) {
+            if (!token.isArrayIndex())
+                return "Can't reference field \"" + token.getField() + "\" on array";
+            return "Array index " + token.toString() + " is out of bounds";
+        }
+        if (node.isJsonObject())
+            return "Missing field \"" + token.getField() + "\"";
+        return "Can't reference past scalar value";
+    }
+
+    /** Returns the number of leading reference tokens, at most {@code limit}, this pointer shares with {@code other}. */
+    int commonPrefix(JsonPointer other, int limit) {
+        int length = 0;
+        while (length < limit && tokens[length].equals(other.tokens[length]))
+            length++;
+        return length;
+    }
+
+    /** Indicates whether this pointer and {@code other} are distinct from the root and have the same parent. */
+    boolean isSibling(JsonPointer other) {
+        return tokens.length > 0 && tokens.length == other.tokens.length
+                && commonPrefix(other, tokens.length - 1) == tokens.length - 1;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -261,33 +360,87 @@ public class JsonPointer {
 
     /** Represents a single JSON Pointer reference token. */
     static class RefToken {
-        private String decodedToken;
-        transient private Integer index = null;
+        /** The {@link #index} of tokens that aren't array indices. */
+        private static final int NOT_AN_INDEX = -1;
+
+        private final String decodedToken;
+        private final int index;
+        private String encodedToken;
 
         public RefToken(String decodedToken) {
+            this(decodedToken, null);
+        }
+
+        private RefToken(String decodedToken, String encodedToken) {
             if (decodedToken == null) throw new IllegalArgumentException("Token can't be null");
             this.decodedToken = decodedToken;
+            this.encodedToken = encodedToken;
+            this.index = parseIndex(decodedToken);
         }
 
-        private static final Pattern DECODED_TILDA_PATTERN = Pattern.compile("~0");
-        private static final Pattern DECODED_SLASH_PATTERN = Pattern.compile("~1");
-
-        private static String decodePath(Object object) {
-            String path = object.toString(); // see http://tools.ietf.org/html/rfc6901#section-4
-            path = DECODED_SLASH_PATTERN.matcher(path).replaceAll("/");
-            return DECODED_TILDA_PATTERN.matcher(path).replaceAll("~");
+        /**
+         * Returns the index an array index token ("{@code -}", "{@code 0}", or digits without a leading zero)
+         * refers to, or {@link #NOT_AN_INDEX}. Indices beyond the range of {@code int} are out of bounds of any
+         * array, and are clamped to {@link Integer#MAX_VALUE}.
+         */
+        private static int parseIndex(String token) {
+            int length = token.length();
+            if (length == 0 || length > 1 && token.charAt(0) == '0')
+                return NOT_AN_INDEX;
+            if (length == 1 && token.charAt(0) == '-')
+                return LAST_INDEX;
+
+            long index = 0;
+            for (int i = 0; i < length; i++) {
+                char c = token.charAt(i);
+                if (c < '0' || c > '9')
+                    return NOT_AN_INDEX;
+                index = Math.min(index * 10 + (c - '0'), Integer.MAX_VALUE);
+            }
+            return (int) index;
         }
 
-        private static final Pattern ENCODED_TILDA_PATTERN = Pattern.compile("~");
-        private static final Pattern ENCODED_SLASH_PATTERN = Pattern.compile("/");
-
-        private static String encodePath(Object object) {
-            String path = object.toString(); // see http://tools.ietf.org/html/rfc6901#section-4
-            path = ENCODED_TILDA_PATTERN.matcher(path).replaceAll("~0");
-            return ENCODED_SLASH_PATTERN.matcher(path).replaceAll("~1");
+        /** Decodes a raw token, leaving invalid escape sequences as they are. See http://tools.ietf.org/html/rfc6901#section-4 */
+        private static String decodePath(String path) {
+            int tilde = path.indexOf('~');
+            if (tilde < 0)
+                return path;
+            StringBuilder sb = new StringBuilder(path.length());
+            sb.append(path, 0, tilde);
+            for (int i = tilde; i < path.length(); i++) {
+                char c = path.charAt(i);
+                char next = i + 1 < path.length() ? path.charAt(i + 1) : 0;
+                if (c == '~' && (next == '0' || next == '1')) {
+                    sb.append(next == '0' ? '~' : '/');
+                    i++;
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
         }
 
-        private static final Pattern VALID_ARRAY_IND = Pattern.compile("-|0|(?:[1-9][0-9]*)");
+        /** Escapes '~' and '/'. See http://tools.ietf.org/html/rfc6901#section-4 */
+        private static String encodePath(String path) {
+            int i = 0;
+            while (i < path.length() && path.charAt(i) != '~' && path.charAt(i) != '/')
+                i++;
+            if (i == path.length())
+                return path;
+
+            StringBuilder sb = new StringBuilder(path.length() + 2);
+            sb.append(path, 0, i);
+            for (; i < path.length(); i++) {
+                char c = path.charAt(i);
+                if (c == '~')
+                    sb.append("~0");
+                else if (c == '/')
+                    sb.append("~1");
+                else
+                    sb.append(c);
+            }
+            return sb.toString();
+        }
 
         public static RefToken parse(String rawToken) {
             if (rawToken == null) throw new IllegalArgumentException("Token can't be null");
@@ -295,13 +448,7 @@ public class JsonPointer {
         }
 
         public boolean isArrayIndex() {
-            if (index != null) return true;
-            Matcher matcher = VALID_ARRAY_IND.matcher(decodedToken);
-            if (matcher.matches()) {
-                index = matcher.group().equals("-") ? LAST_INDEX : Integer.parseInt(matcher.group());
-                return true;
-            }
-            return false;
+            return index != NOT_AN_INDEX;
         }
 
         public int getIndex() {
@@ -315,7 +462,10 @@ public class JsonPointer {
 
         @Override
         public String toString() {
-            return encodePath(decodedToken);
+            String result = encodedToken;
+            if (result == null)
+                encodedToken = result = encodePath(decodedToken);
+            return result;
         }
 
         @Override
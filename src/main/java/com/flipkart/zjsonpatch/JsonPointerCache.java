@@ -0,0 +1,135 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of parsed {@link JsonPointer}s, keyed by their string representation. Patches that
+ * reuse a small set of paths across many applications can share one cache, so that each distinct path is
+ * parsed once and every operation on it refers to the same immutable instance. When the cache is full, a
+ * pointer that hasn't been used recently is evicted: cached pointers are swept in a circle, and a pointer
+ * used since the sweep last passed it is kept for another round (the CLOCK approximation of
+ * least-recently-used eviction).
+ *
+ * <p>Instances are thread-safe. Finding a cached pointer takes no lock; only adding a pointer to the cache
+ * does.
+ *
+ * @see JsonPatch#apply(com.google.gson.JsonElement, com.google.gson.JsonElement, java.util.EnumSet, JsonPointerCache)
+ * @see Patch#fromJson(com.google.gson.JsonElement, java.util.EnumSet, JsonPointerCache)
+ * @since 0.4.17
+ */
+public final class JsonPointerCache {
+    private final int maximumSize;
+    private final ConcurrentMap<String, Entry> pointers;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    // the cached entries in the order the sweep visits them, and the next one it visits; guarded by clock
+    private final List<Entry> clock = new ArrayList<Entry>();
+    private int hand;
+
+    /**
+     * @param maximumSize The number of pointers the cache holds at most.
+     */
+    public JsonPointerCache(int maximumSize) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("Maximum size must be positive");
+        this.maximumSize = maximumSize;
+        this.pointers = new ConcurrentHashMap<String, Entry>();
+    }
+
+    /**
+     * Returns the pointer {@code path} represents, parsing it only if it isn't cached.
+     *
+     * @throws IllegalArgumentException The specified JSON Pointer is invalid.
+     * @see JsonPointer#parse(String)
+     */
+    public JsonPointer parse(String path) throws IllegalArgumentException {
+        Entry entry = pointers.get(path);
+        if (entry != null) {
+            hitCount.increment();
+            // only written when clear, so that hits on a popular pointer don't contend on its cache line
+            if (!entry.used)
+                entry.used = true;
+            return entry.pointer;
+        }
+        missCount.increment();
+
+        // parsed outside the lock; if another thread cached the path meanwhile, its instance is kept
+        JsonPointer parsed = JsonPointer.parse(path);
+        synchronized (clock) {
+            entry = pointers.get(path);
+            if (entry != null)
+                return entry.pointer;
+            entry = new Entry(path, parsed);
+            if (clock.size() < maximumSize) {
+                clock.add(entry);
+            } else {
+                while (clock.get(hand).used) {
+                    clock.get(hand).used = false;
+                    hand = (hand + 1) % maximumSize;
+                }
+                pointers.remove(clock.set(hand, entry).path);
+                evictionCount.increment();
+                hand = (hand + 1) % maximumSize;
+            }
+            pointers.put(path, entry);
+            return parsed;
+        }
+    }
+
+    /**
+     * Parses {@code path} with {@code cache}, or without caching if {@code cache} is null.
+     */
+    static JsonPointer parse(JsonPointerCache cache, String path) {
+        return cache == null ? JsonPointer.parse(path) : cache.parse(path);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /** Returns the number of pointers currently cached. */
+    public int size() {
+        return pointers.size();
+    }
+
+    /** Returns the number of calls to {@link #parse} that found their pointer cached. */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /** Returns the number of calls to {@link #parse} that had to parse their pointer. */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /** Returns the number of pointers evicted to keep the cache within its maximum size. */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /** Removes all cached pointers; the counters are left as they are. */
+    public void clear() {
+        synchronized (clock) {
+            pointers.clear();
+            clock.clear();
+            hand = 0;
+        }
+    }
+
+    private static final class Entry {
+        private final String path;
+        private final JsonPointer pointer;
+        // whether the pointer was used since the sweep last passed it
+        private volatile boolean used;
+
+        Entry(String path, JsonPointer pointer) {
+            this.path = path;
+            this.pointer = pointer;
+        }
+    }
+}
@@ -2,12 +2,17 @@ package com.flipkart.zjsonpatch;
 
 import com.google.gson.JsonElement;
 
+/**
+ * Signals that a {@link JsonPointer} doesn't resolve in a document. Instances carry no stack trace, as the
+ * path and target identify the failure; see {@link JsonPointer#tryEvaluate} to evaluate pointers that may
+ * not resolve without an exception.
+ */
 public class JsonPointerEvaluationException extends Exception {
     private final JsonPointer path;
     private final JsonElement target;
 
     public JsonPointerEvaluationException(String message, JsonPointer path, JsonElement target) {
-        super(message);
+        super(message, null, false, false);
         this.path = path;
         this.target = target;
     }
@@ -0,0 +1,53 @@
+package com.flipkart.zjsonpatch;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * A {@link DiffSink} writing the patch as a JSON array to a {@link JsonWriter}, for example one
+ * wrapping a file or a network stream. The writer is flushed at the end but not closed.
+ *
+ * <p>I/O errors are rethrown as {@link UncheckedIOException}.
+ *
+ * @since 0.4.17
+ */
+public final class JsonWriterDiffSink implements DiffSink {
+    private final JsonWriter writer;
+
+    public JsonWriterDiffSink(JsonWriter writer) {
+        if (writer == null) throw new IllegalArgumentException("writer can't be null");
+        this.writer = writer;
+    }
+
+    @Override
+    public void begin() {
+        try {
+            writer.beginArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void accept(JsonObject operation) {
+        try {
+            InternalUtils.ELEMENT_ADAPTER.write(writer, operation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void end() {
+        try {
+            writer.endArray();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
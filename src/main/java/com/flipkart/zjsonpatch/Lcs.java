@@ -0,0 +1,232 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes a longest common subsequence of two sequences of element ids, as used by
+ * {@link JsonDiff} to align the elements of two arrays.
+ *
+ * <p>Callers intern equal elements to equal ids beforehand, so every comparison made here
+ * is a single int comparison. The common prefix and suffix are matched directly; the
+ * remainder is aligned with Myers' O(ND) greedy algorithm
+ * (<a href="http://www.xmailserver.org/diff2.pdf">An O(ND) Difference Algorithm and Its Variations</a>),
+ * which is near-linear for nearly identical arrays.
+ *
+ * <p>The greedy algorithm keeps O(D<sup>2</sup>) cells of state for backtracking. Once that would
+ * exceed the caller's cell limit, alignment switches to the divide-and-conquer variant from the same
+ * paper, which recursively splits both sequences around a middle snake (as in Hirschberg's LCS) and
+ * needs only O(N + M) memory, at the cost of roughly doubling the work.
+ *
+ * <p>Both algorithms charge their work to an optional {@link WorkBudget.Meter} and give up once it
+ * is exhausted, bounding the time spent on pathological arrays.
+ */
+final class Lcs {
+
+    static final int NO_MATCH = -1;
+
+    private Lcs() {}
+
+    static int[] align(int[] a, int[] b, long maxCells) {
+        return align(a, b, maxCells, null);
+    }
+
+    /**
+     * Aligns two sequences.
+     *
+     * @param meter Meter charged with the alignment work, or {@code null} if it is unbounded.
+     * @return an array holding, for every index of {@code a}, the index of the matching element of
+     * {@code b}, or {@link #NO_MATCH}. Matched indices are strictly increasing. {@code null} if the
+     * meter ran out.
+     */
+    static int[] align(int[] a, int[] b, long maxCells, WorkBudget.Meter meter) {
+        int[] matches = new int[a.length];
+        Arrays.fill(matches, NO_MATCH);
+
+        int start = 0;
+        int aEnd = a.length;
+        int bEnd = b.length;
+        while (start < aEnd && start < bEnd && a[start] == b[start]) {
+            matches[start] = start;
+            start++;
+        }
+        while (aEnd > start && bEnd > start && a[aEnd - 1] == b[bEnd - 1]) {
+            aEnd--;
+            bEnd--;
+            matches[aEnd] = bEnd;
+        }
+
+        if (start < aEnd && start < bEnd && !myers(a, start, aEnd, b, start, bEnd, matches, maxCells, meter)) {
+            if (meter != null && meter.isExhausted())
+                return null;
+            int size = aEnd - start + bEnd - start + 5;
+            if (!linear(a, start, aEnd, b, start, bEnd, matches, new int[size], new int[size], meter))
+                return null;
+        }
+        return matches;
+    }
+
+    /**
+     * Greedy forward search keeping a trace for backtracking.
+     *
+     * @return {@code false} if the trace would grow beyond {@code maxCells} or the meter ran out;
+     * nothing is matched then.
+     */
+    private static boolean myers(int[] a, int aStart, int aEnd, int[] b, int bStart, int bEnd, int[] matches, long maxCells,
+                                 WorkBudget.Meter meter) {
+        final int n = aEnd - aStart;
+        final int m = bEnd - bStart;
+        final int max = n + m;
+        final int offset = max + 1;
+        // v[offset + k] holds the furthest x reached on diagonal k = x - y
+        int[] v = new int[2 * max + 3];
+        // trace.get(d) holds diagonals -d..d of v as they were after round d
+        List<int[]> trace = new ArrayList<int[]>();
+
+        long cells = 0;
+        for (int d = 0; d <= max; d++) {
+            cells += 2 * d + 1;
+            if (cells > maxCells)
+                return false;
+            long work = d + 1;
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1]))
+                    x = v[offset + k + 1];
+                else
+                    x = v[offset + k - 1] + 1;
+                int y = x - k;
+                final int x0 = x;
+                while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                    x++;
+                    y++;
+                }
+                work += x - x0;
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    backtrack(trace, d, n, m, aStart, bStart, matches);
+                    return true;
+                }
+            }
+            if (meter != null && !meter.charge(work))
+                return false;
+            trace.add(Arrays.copyOfRange(v, offset - d, offset + d + 1));
+        }
+        throw new IllegalStateException("Unreachable: no path through edit graph");
+    }
+
+    private static void backtrack(List<int[]> trace, int depth, int x, int y, int aStart, int bStart, int[] matches) {
+        for (int d = depth; d > 0; d--) {
+            int[] prev = trace.get(d - 1);
+            int k = x - y;
+            int prevK;
+            int snakeStart;
+            // prev holds diagonals -(d - 1)..(d - 1), so diagonal i lives at prev[i + d - 1]
+            if (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1])) {
+                prevK = k + 1;
+                snakeStart = prev[prevK + d - 1];
+            } else {
+                prevK = k - 1;
+                snakeStart = prev[prevK + d - 1] + 1;
+            }
+            while (x > snakeStart) {
+                x--;
+                y--;
+                matches[aStart + x] = bStart + y;
+            }
+            x = prev[prevK + d - 1];
+            y = x - prevK;
+        }
+        while (x > 0) {
+            x--;
+            y--;
+            matches[aStart + x] = bStart + y;
+        }
+    }
+
+    /**
+     * Linear-space alignment: finds the middle snake of an optimal edit path, matches it, and recurses
+     * on the parts before and after it. {@code vf} and {@code vb} are scratch arrays of at least
+     * {@code n + m + 5} cells, shared by all levels of the recursion.
+     *
+     * @return {@code false} if the meter ran out; the matches are incomplete then.
+     */
+    private static boolean linear(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi, int[] matches, int[] vf, int[] vb,
+                                  WorkBudget.Meter meter) {
+        while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+            matches[aLo++] = bLo++;
+        }
+        while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+            matches[--aHi] = --bHi;
+        }
+        if (aLo == aHi || bLo == bHi)
+            return true;
+
+        final int n = aHi - aLo;
+        final int m = bHi - bLo;
+        final int delta = n - m;
+        final boolean odd = (delta & 1) != 0;
+        final int offset = (n + m + 1) / 2 + 1;
+        vf[offset + 1] = 0;
+        vb[offset + 1] = 0;
+
+        for (int d = 0; d <= (n + m + 1) / 2; d++) {
+            long work = 2 * (d + 1);
+            // forward paths from (0, 0)
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && vf[offset + k - 1] < vf[offset + k + 1]))
+                    x = vf[offset + k + 1];
+                else
+                    x = vf[offset + k - 1] + 1;
+                int y = x - k;
+                final int x0 = x;
+                final int y0 = y;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x++;
+                    y++;
+                }
+                work += x - x0;
+                vf[offset + k] = x;
+                int reverseK = delta - k;
+                if (odd && reverseK >= -(d - 1) && reverseK <= d - 1 && x + vb[offset + reverseK] >= n) {
+                    return split(a, aLo, aHi, b, bLo, bHi, matches, vf, vb, meter, x0, y0, x, y);
+                }
+            }
+            // reverse paths from (n, m), with x and y counted from the end
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && vb[offset + k - 1] < vb[offset + k + 1]))
+                    x = vb[offset + k + 1];
+                else
+                    x = vb[offset + k - 1] + 1;
+                int y = x - k;
+                final int x0 = x;
+                final int y0 = y;
+                while (x < n && y < m && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x++;
+                    y++;
+                }
+                work += x - x0;
+                vb[offset + k] = x;
+                int forwardK = delta - k;
+                if (!odd && forwardK >= -d && forwardK <= d && x + vf[offset + forwardK] >= n) {
+                    return split(a, aLo, aHi, b, bLo, bHi, matches, vf, vb, meter, n - x, m - y, n - x0, m - y0);
+                }
+            }
+            if (meter != null && !meter.charge(work))
+                return false;
+        }
+        throw new IllegalStateException("Unreachable: no middle snake found");
+    }
+
+    private static boolean split(int[] a, int aLo, int aHi, int[] b, int bLo, int bHi, int[] matches, int[] vf, int[] vb,
+                                 WorkBudget.Meter meter, int snakeX, int snakeY, int snakeEndX, int snakeEndY) {
+        for (int x = snakeX, y = snakeY; x < snakeEndX; x++, y++) {
+            matches[aLo + x] = bLo + y;
+        }
+        return linear(a, aLo, aLo + snakeX, b, bLo, bLo + snakeY, matches, vf, vb, meter)
+                && linear(a, aLo + snakeEndX, aHi, b, bLo + snakeEndY, bHi, matches, vf, vb, meter);
+    }
+}
@@ -53,7 +53,10 @@ public enum Operation {
 
     public static Operation fromRfcName(String rfcName) throws InvalidJsonPatchException {
         if (rfcName == null) throw new InvalidJsonPatchException("rfcName cannot be null");
-        Operation op = OPS.get(rfcName.toLowerCase());
+        Operation op = OPS.get(rfcName);
+        if (op == null)
+            // names are usually lower case already; only fold case when they are not
+            op = OPS.get(rfcName.toLowerCase());
         if (op == null) throw new InvalidJsonPatchException("unknown / unsupported operation " + rfcName);
         return op;
     }
@@ -0,0 +1,183 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Applies a patch to a copy of an object document on a {@link ForkJoinPool}, one task per field of the
+ * document the patch touches. Operations on different fields of the root object are independent as long as
+ * no operation replaces the root itself and no move or copy crosses from one field to another; patches that
+ * don't meet these conditions, or touch a single field only, are applied sequentially.
+ *
+ * <p>Each task applies the operations of its field, in patch order, to a scope object holding only that
+ * field, so error messages and pointers are the same as those of a sequential apply. If operations fail, the
+ * failure of the earliest one is rethrown, which is the one a sequential apply would have thrown. Adding or
+ * removing fields of the root reorders its fields; the order a sequential apply would produce is reconstructed
+ * from the operations on fields of the root.
+ */
+final class ParallelApply {
+    private final Patch patch;
+    private final EnumSet<CompatibilityFlags> flags;
+
+    private ParallelApply(Patch patch, EnumSet<CompatibilityFlags> flags) {
+        this.patch = patch;
+        this.flags = flags;
+    }
+
+    static JsonElement apply(Patch patch, JsonElement source, EnumSet<CompatibilityFlags> flags, ForkJoinPool pool) {
+        Map<String, List<Integer>> partitions = partition(patch, source);
+        if (partitions == null || partitions.size() < 2)
+            return JsonPatch.apply(patch, source, flags);
+
+        ParallelApply apply = new ParallelApply(patch, flags);
+        RootTask root = apply.new RootTask(source.getAsJsonObject(), partitions);
+        pool.invoke(root);
+        // rethrown here, as the pool would rethrow a copy of it
+        if (root.failure != null)
+            throw root.failure;
+        return root.result;
+    }
+
+    /**
+     * Groups the indices of the operations of {@code patch} by the field of the root object they target, or
+     * returns null if they can't be applied independently.
+     */
+    private static Map<String, List<Integer>> partition(Patch patch, JsonElement source) {
+        if (!source.isJsonObject())
+            return null;
+
+        Map<String, List<Integer>> partitions = new LinkedHashMap<String, List<Integer>>();
+        List<PatchOperation> operations = patch.getOperations();
+        for (int idx = 0; idx < operations.size(); idx++) {
+            PatchOperation operation = operations.get(idx);
+            if (operation.getPath().isRoot())
+                return null;
+            String field = operation.getPath().get(0).getField();
+            JsonPointer from = operation.getFrom();
+            if (from != null && (from.isRoot() || !from.get(0).getField().equals(field)))
+                return null;
+
+            List<Integer> indices = partitions.get(field);
+            if (indices == null) {
+                indices = new ArrayList<Integer>();
+                partitions.put(field, indices);
+            }
+            indices.add(idx);
+        }
+        return partitions;
+    }
+
+    /**
+     * Returns the fields of the result in the order a sequential apply leaves them, given the fields of the
+     * source: fields that are added are appended, fields that are removed or moved away are dropped.
+     */
+    private Set<String> fieldOrder(JsonObject source) {
+        Set<String> fields = new LinkedHashSet<String>(source.keySet());
+        for (PatchOperation operation : patch) {
+            JsonPointer from = operation.getFrom();
+            if (operation.getOperation() == Operation.MOVE && from.size() == 1)
+                fields.remove(from.get(0).getField());
+            if (operation.getPath().size() != 1)
+                continue;
+
+            String field = operation.getPath().get(0).getField();
+            if (operation.getOperation() == Operation.REMOVE)
+                fields.remove(field);
+            else if (operation.getOperation() != Operation.TEST)
+                fields.add(field);
+        }
+        return fields;
+    }
+
+    private final class RootTask extends RecursiveAction {
+        private final JsonObject source;
+        private final Map<String, List<Integer>> partitions;
+        private JsonObject result;
+        private RuntimeException failure;
+
+        RootTask(JsonObject source, Map<String, List<Integer>> partitions) {
+            this.source = source;
+            this.partitions = partitions;
+        }
+
+        @Override
+        protected void compute() {
+            List<FieldTask> tasks = new ArrayList<FieldTask>(partitions.size());
+            for (Map.Entry<String, List<Integer>> partition : partitions.entrySet()) {
+                FieldTask task = new FieldTask(partition.getKey(), source.get(partition.getKey()), partition.getValue());
+                task.fork();
+                tasks.add(task);
+            }
+
+            // fields the patch doesn't touch are copied while the tasks run
+            Map<String, JsonElement> values = new LinkedHashMap<String, JsonElement>();
+            for (Map.Entry<String, JsonElement> entry : source.entrySet()) {
+                if (!partitions.containsKey(entry.getKey()))
+                    values.put(entry.getKey(), entry.getValue().deepCopy());
+            }
+
+            FieldTask failed = null;
+            for (FieldTask task : tasks) {
+                task.join();
+                if (task.failure != null && (failed == null || task.failedAt < failed.failedAt))
+                    failed = task;
+                JsonElement value = task.scope.get(task.field);
+                if (value != null)
+                    values.put(task.field, value);
+            }
+            if (failed != null) {
+                failure = failed.failure;
+                return;
+            }
+
+            result = new JsonObject();
+            for (String field : fieldOrder(source)) {
+                JsonElement value = values.remove(field);
+                if (value != null)
+                    result.add(field, value);
+            }
+        }
+    }
+
+    private final class FieldTask extends RecursiveAction {
+        private final String field;
+        private final JsonElement value;
+        private final List<Integer> indices;
+        private final JsonObject scope = new JsonObject();
+        private RuntimeException failure;
+        private int failedAt;
+
+        FieldTask(String field, JsonElement value, List<Integer> indices) {
+            this.field = field;
+            this.value = value;
+            this.indices = indices;
+        }
+
+        @Override
+        protected void compute() {
+            if (value != null)
+                scope.add(field, value.deepCopy());
+            InPlaceApplyProcessor processor = new InPlaceApplyProcessor(scope, flags);
+            try {
+                for (int idx : indices) {
+                    failedAt = idx;
+                    JsonPatch.process(patch.getOperations().get(idx), processor, true);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                processor.flush();
+            }
+        }
+    }
+}
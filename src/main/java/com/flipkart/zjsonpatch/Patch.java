@@ -0,0 +1,106 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+/**
+ * An immutable JSON Patch (RFC 6902): an ordered list of {@link PatchOperation}s.
+ *
+ * <p>Patches are produced by {@link JsonDiff#asPatch} and applied by {@link JsonPatch#apply(Patch, JsonElement)},
+ * so a diff can be applied in the same process without rendering it to JSON and parsing it back.
+ * Use {@link #toJson()} and {@link #fromJson(JsonElement)} when a patch leaves or enters the JVM.
+ *
+ * @since 0.4.17
+ */
+public final class Patch implements Iterable<PatchOperation> {
+    private final List<PatchOperation> operations;
+
+    public Patch(List<PatchOperation> operations) {
+        if (operations == null) throw new IllegalArgumentException("operations can't be null");
+        List<PatchOperation> copy = new ArrayList<PatchOperation>(operations);
+        if (copy.contains(null)) throw new IllegalArgumentException("operations can't contain null");
+        this.operations = Collections.unmodifiableList(copy);
+    }
+
+    public static Patch fromJson(JsonElement patch) throws InvalidJsonPatchException {
+        return fromJson(patch, CompatibilityFlags.defaults());
+    }
+
+    /**
+     * Parses a JSON Patch document.
+     *
+     * @throws InvalidJsonPatchException if {@code patch} is not a valid JSON Patch.
+     */
+    public static Patch fromJson(JsonElement patch, EnumSet<CompatibilityFlags> flags) throws InvalidJsonPatchException {
+        return fromJson(patch, flags, null);
+    }
+
+    /**
+     * Parses a JSON Patch document, taking its pointers from {@code pointers}, so that operations on the same
+     * path share a single {@link JsonPointer} instance.
+     *
+     * @param pointers The cache to parse pointers with, or {@code null} to parse every pointer.
+     * @throws InvalidJsonPatchException if {@code patch} is not a valid JSON Patch.
+     */
+    public static Patch fromJson(JsonElement patch, EnumSet<CompatibilityFlags> flags, JsonPointerCache pointers)
+            throws InvalidJsonPatchException {
+        if (!patch.isJsonArray())
+            throw new InvalidJsonPatchException("Invalid JSON Patch payload (not an array)");
+        List<PatchOperation> operations = new ArrayList<PatchOperation>(patch.getAsJsonArray().size());
+        for (JsonElement jsonNode : patch.getAsJsonArray()) {
+            operations.add(PatchOperation.fromJson(jsonNode, flags, pointers));
+        }
+        return new Patch(operations);
+    }
+
+    /**
+     * @return An unmodifiable list of the operations of this patch, in order.
+     */
+    public List<PatchOperation> getOperations() {
+        return operations;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    @Override
+    public Iterator<PatchOperation> iterator() {
+        return operations.iterator();
+    }
+
+    /**
+     * Renders the patch as a JSON Patch document, as returned by {@link JsonDiff#asJson}.
+     */
+    public JsonArray toJson() {
+        JsonArray patch = new JsonArray(operations.size());
+        for (PatchOperation operation : operations) {
+            patch.add(operation.toJson());
+        }
+        return patch;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return operations.equals(((Patch) o).operations);
+    }
+
+    @Override
+    public int hashCode() {
+        return operations.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+}
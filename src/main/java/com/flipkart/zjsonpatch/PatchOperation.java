@@ -0,0 +1,224 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.EnumSet;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+
+/**
+ * A single operation of a {@link Patch}, as defined by RFC 6902.
+ *
+ * <p>Instances are immutable as long as their values are not modified; values are neither copied
+ * when an operation is created nor when it is applied, which copies them into the target document.
+ *
+ * @since 0.4.17
+ */
+public final class PatchOperation {
+    private final Operation operation;
+    private final JsonPointer path;
+    private final JsonPointer from;
+    private final JsonElement value;
+    private final JsonElement fromValue;
+
+    PatchOperation(Operation operation, JsonPointer path, JsonPointer from, JsonElement value, JsonElement fromValue) {
+        this.operation = operation;
+        this.path = path;
+        this.from = from;
+        this.value = value;
+        this.fromValue = fromValue;
+    }
+
+    public static PatchOperation add(JsonPointer path, JsonElement value) {
+        return new PatchOperation(Operation.ADD, checkPath(path), null, checkValue(value), null);
+    }
+
+    public static PatchOperation remove(JsonPointer path) {
+        return new PatchOperation(Operation.REMOVE, checkPath(path), null, null, null);
+    }
+
+    public static PatchOperation replace(JsonPointer path, JsonElement value) {
+        return new PatchOperation(Operation.REPLACE, checkPath(path), null, checkValue(value), null);
+    }
+
+    public static PatchOperation move(JsonPointer from, JsonPointer path) {
+        return new PatchOperation(Operation.MOVE, checkPath(path), checkPath(from), null, null);
+    }
+
+    public static PatchOperation copy(JsonPointer from, JsonPointer path) {
+        return new PatchOperation(Operation.COPY, checkPath(path), checkPath(from), null, null);
+    }
+
+    public static PatchOperation test(JsonPointer path, JsonElement value) {
+        return new PatchOperation(Operation.TEST, checkPath(path), null, checkValue(value), null);
+    }
+
+    private static JsonPointer checkPath(JsonPointer path) {
+        if (path == null) throw new IllegalArgumentException("path can't be null");
+        return path;
+    }
+
+    private static JsonElement checkValue(JsonElement value) {
+        if (value == null) throw new IllegalArgumentException("value can't be null, use JsonNull.INSTANCE");
+        return value;
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * The location the operation applies to; for {@link Operation#MOVE} and {@link Operation#COPY}
+     * operations, the destination.
+     */
+    public JsonPointer getPath() {
+        return path;
+    }
+
+    /**
+     * The source of {@link Operation#MOVE} and {@link Operation#COPY} operations, {@code null} otherwise.
+     */
+    public JsonPointer getFrom() {
+        return from;
+    }
+
+    /**
+     * The value of {@link Operation#ADD}, {@link Operation#REPLACE} and {@link Operation#TEST} operations.
+     * {@link Operation#REMOVE} operations may carry the removed value for information, unless
+     * {@link DiffFlags#OMIT_VALUE_ON_REMOVE} is set; {@code null} otherwise.
+     */
+    public JsonElement getValue() {
+        return value;
+    }
+
+    /**
+     * The replaced value of a {@link Operation#REPLACE} operation if the patch was generated with
+     * {@link DiffFlags#ADD_ORIGINAL_VALUE_ON_REPLACE}, {@code null} otherwise.
+     */
+    public JsonElement getFromValue() {
+        return fromValue;
+    }
+
+    /**
+     * Renders the operation as a JSON Patch operation object.
+     */
+    public JsonObject toJson() {
+        JsonObject jsonNode = new JsonObject();
+        jsonNode.addProperty(Constants.OP, operation.rfcName());
+        if (from != null)
+            jsonNode.addProperty(Constants.FROM, from.toString());
+        if (fromValue != null)
+            jsonNode.add(Constants.FROM_VALUE, fromValue);
+        jsonNode.addProperty(Constants.PATH, path.toString());
+        if (value != null)
+            jsonNode.add(Constants.VALUE, value);
+        return jsonNode;
+    }
+
+    /**
+     * Parses a JSON Patch operation object.
+     *
+     * @throws InvalidJsonPatchException if the object is not a valid operation.
+     */
+    static PatchOperation fromJson(JsonElement jsonNode, EnumSet<CompatibilityFlags> flags) throws InvalidJsonPatchException {
+        return fromJson(jsonNode, flags, null);
+    }
+
+    /**
+     * Parses a JSON Patch operation object, parsing its pointers with {@code pointers} unless it is null.
+     *
+     * @throws InvalidJsonPatchException if the object is not a valid operation.
+     */
+    static PatchOperation fromJson(JsonElement jsonNode, EnumSet<CompatibilityFlags> flags, JsonPointerCache pointers)
+            throws InvalidJsonPatchException {
+        if (!jsonNode.isJsonObject()) throw new InvalidJsonPatchException("Invalid JSON Patch payload (not an object)");
+        Operation operation = Operation.fromRfcName(getTextValue(getPatchStringAttr(jsonNode, Constants.OP)));
+        JsonPointer path = JsonPointerCache.parse(pointers, getTextValue(getPatchStringAttr(jsonNode, Constants.PATH)));
+
+        switch (operation) {
+            case REMOVE:
+                return new PatchOperation(operation, path, null, getPatchAttrWithDefault(jsonNode, Constants.VALUE, null), null);
+
+            case REPLACE:
+                return new PatchOperation(operation, path, null, getValue(jsonNode, flags),
+                        getPatchAttrWithDefault(jsonNode, Constants.FROM_VALUE, null));
+
+            case ADD:
+            case TEST:
+                return new PatchOperation(operation, path, null, getValue(jsonNode, flags), null);
+
+            case MOVE:
+            case COPY:
+                JsonPointer fromPath = JsonPointerCache.parse(pointers, getTextValue(getPatchStringAttr(jsonNode, Constants.FROM)));
+                return new PatchOperation(operation, path, fromPath, null, null);
+
+            default:
+                // Safety net
+                throw new IllegalArgumentException("Unknown operation specified:" + operation);
+        }
+    }
+
+    private static JsonElement getValue(JsonElement jsonNode, EnumSet<CompatibilityFlags> flags) {
+        if (!flags.contains(CompatibilityFlags.MISSING_VALUES_AS_NULLS))
+            return getPatchAttr(jsonNode, Constants.VALUE);
+        else
+            return getPatchAttrWithDefault(jsonNode, Constants.VALUE, JsonNull.INSTANCE);
+    }
+
+    private static JsonElement getPatchStringAttr(JsonElement jsonNode, String attr) {
+        JsonElement child = getPatchAttr(jsonNode, attr);
+
+        if (!(child.isJsonPrimitive() && child.getAsJsonPrimitive().isString()))
+            throw new InvalidJsonPatchException("Invalid JSON Patch payload (non-text '" + attr + "' field)");
+
+        return child;
+    }
+
+    private static JsonElement getPatchAttr(JsonElement jsonNode, String attr) {
+        JsonElement child = jsonNode.getAsJsonObject().get(attr);
+        if (child == null)
+            throw new InvalidJsonPatchException("Invalid JSON Patch payload (missing '" + attr + "' field)");
+
+        return child;
+    }
+
+    private static JsonElement getPatchAttrWithDefault(JsonElement jsonNode, String attr, JsonElement defaultValue) {
+        JsonElement child = jsonNode.getAsJsonObject().get(attr);
+        if (child == null)
+            return defaultValue;
+        else
+            return child;
+    }
+
+    private static String getTextValue(JsonElement jsonElement) {
+        return jsonElement.getAsJsonPrimitive().getAsString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        PatchOperation that = (PatchOperation) o;
+        return operation == that.operation
+                && path.equals(that.path)
+                && (from == null ? that.from == null : from.equals(that.from))
+                && (value == null ? that.value == null : value.equals(that.value))
+                && (fromValue == null ? that.fromValue == null : fromValue.equals(that.fromValue));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = operation.hashCode();
+        result = 31 * result + path.hashCode();
+        result = 31 * result + (from != null ? from.hashCode() : 0);
+        result = 31 * result + (value != null ? value.hashCode() : 0);
+        result = 31 * result + (fromValue != null ? fromValue.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+}
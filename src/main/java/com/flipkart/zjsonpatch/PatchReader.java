@@ -0,0 +1,50 @@
+package com.flipkart.zjsonpatch;
+
+import java.io.IOException;
+import java.util.EnumSet;
+
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Parses the operations of a JSON Patch document from a {@link JsonReader} one at a time, so that only the
+ * operation being parsed is held in memory. Operations are validated like those of {@link Patch#fromJson}, as
+ * they are read: an invalid operation is only reported once the operations before it have been returned.
+ */
+final class PatchReader {
+    private final JsonReader in;
+    private final EnumSet<CompatibilityFlags> flags;
+    private final JsonPointerCache pointers;
+    private boolean started;
+    private boolean done;
+
+    PatchReader(JsonReader in, EnumSet<CompatibilityFlags> flags, JsonPointerCache pointers) {
+        this.in = in;
+        this.flags = flags;
+        this.pointers = pointers;
+    }
+
+    /**
+     * Returns the next operation of the patch, or null once the closing bracket of the patch has been consumed.
+     * The reader is left positioned after the patch.
+     *
+     * @throws InvalidJsonPatchException if the patch, or the operation read, is invalid.
+     */
+    PatchOperation next() throws IOException, InvalidJsonPatchException {
+        if (done)
+            return null;
+        if (!started) {
+            if (in.peek() != JsonToken.BEGIN_ARRAY)
+                throw new InvalidJsonPatchException("Invalid JSON Patch payload (not an array)");
+            in.beginArray();
+            started = true;
+        }
+        if (!in.hasNext()) {
+            in.endArray();
+            done = true;
+            return null;
+        }
+        return PatchOperation.fromJson(InternalUtils.ELEMENT_ADAPTER.read(in), flags, pointers);
+    }
+}
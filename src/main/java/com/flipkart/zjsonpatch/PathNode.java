@@ -0,0 +1,45 @@
+package com.flipkart.zjsonpatch;
+
+/**
+ * A location in a document being traversed, linked to the location of its parent so that descending
+ * into a child takes constant time and shares the parent's path. Locations are flattened into a
+ * {@link JsonPointer} only where one is needed, for example for an operation of a diff.
+ */
+final class PathNode {
+    static final PathNode ROOT = new PathNode(null, null, 0);
+
+    private final PathNode parent;
+    private final JsonPointer.RefToken token;
+    private final int depth;
+    private JsonPointer pointer;
+
+    private PathNode(PathNode parent, JsonPointer.RefToken token, int depth) {
+        this.parent = parent;
+        this.token = token;
+        this.depth = depth;
+    }
+
+    PathNode append(String field) {
+        return new PathNode(this, new JsonPointer.RefToken(field), depth + 1);
+    }
+
+    PathNode append(int index) {
+        return append(Integer.toString(index));
+    }
+
+    /**
+     * Returns the pointer to this location; flattening takes time linear in its depth the first time only.
+     */
+    JsonPointer toPointer() {
+        JsonPointer result = pointer;
+        if (result == null) {
+            JsonPointer.RefToken[] tokens = new JsonPointer.RefToken[depth];
+            for (PathNode node = this; node.depth > 0; node = node.parent) {
+                tokens[node.depth - 1] = node.token;
+            }
+            // a racing thread computes an equal pointer
+            pointer = result = depth == 0 ? JsonPointer.ROOT : new JsonPointer(tokens);
+        }
+        return result;
+    }
+}
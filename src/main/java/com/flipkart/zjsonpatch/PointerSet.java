@@ -0,0 +1,103 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.JsonElement;
+
+/**
+ * A set of {@link JsonPointer}s evaluated against documents together. The pointers are arranged in a trie
+ * once, so that evaluating them resolves every prefix they share once, in a single traversal of the
+ * document. Pointers that don't resolve are reported in their {@link EvaluationResult} instead of by an
+ * exception.
+ *
+ * <p>Instances are immutable, and may be used to evaluate any number of documents concurrently.
+ *
+ * @since 0.4.17
+ */
+public final class PointerSet {
+    private final List<JsonPointer> pointers = new ArrayList<JsonPointer>();
+    private final Node root = new Node(JsonPointer.ROOT);
+
+    public PointerSet(Collection<JsonPointer> pointers) {
+        if (pointers == null) throw new IllegalArgumentException("pointers can't be null");
+        for (JsonPointer pointer : pointers) {
+            if (pointer == null) throw new IllegalArgumentException("pointers can't contain null");
+            add(pointer);
+        }
+    }
+
+    private void add(JsonPointer pointer) {
+        Node node = root;
+        for (int idx = 0; idx < pointer.size(); idx++) {
+            JsonPointer.RefToken token = pointer.get(idx);
+            Node child = node.children.get(token);
+            if (child == null) {
+                child = new Node(pointer.prefix(idx + 1));
+                node.children.put(token, child);
+            }
+            node = child;
+        }
+        if (node.index < 0) {
+            node.index = this.pointers.size();
+            this.pointers.add(pointer);
+        }
+    }
+
+    /** Returns the distinct pointers of this set, in the order they were given. */
+    public List<JsonPointer> getPointers() {
+        return Collections.unmodifiableList(pointers);
+    }
+
+    /**
+     * Evaluates every pointer of this set against {@code document}. The outcome of each pointer is the same
+     * as that of {@link JsonPointer#evaluate(JsonElement)}.
+     *
+     * @return An unmodifiable map from every distinct pointer, in the order they were given, to its result.
+     */
+    public Map<JsonPointer, EvaluationResult> evaluate(JsonElement document) {
+        EvaluationResult[] results = new EvaluationResult[pointers.size()];
+        resolve(root, document, results);
+
+        Map<JsonPointer, EvaluationResult> byPointer = new LinkedHashMap<JsonPointer, EvaluationResult>();
+        for (EvaluationResult result : results) {
+            byPointer.put(result.getPointer(), result);
+        }
+        return Collections.unmodifiableMap(byPointer);
+    }
+
+    private void resolve(Node node, JsonElement value, EvaluationResult[] results) {
+        if (node.index >= 0)
+            results[node.index] = EvaluationResult.resolved(pointers.get(node.index), value);
+        for (Map.Entry<JsonPointer.RefToken, Node> entry : node.children.entrySet()) {
+            JsonElement child = JsonPointer.child(value, entry.getKey());
+            if (child == null)
+                fail(entry.getValue(), JsonPointer.missingChild(value, entry.getKey()), node.path, results);
+            else
+                resolve(entry.getValue(), child, results);
+        }
+    }
+
+    private void fail(Node node, String message, JsonPointer errorPath, EvaluationResult[] results) {
+        if (node.index >= 0)
+            results[node.index] = EvaluationResult.failed(pointers.get(node.index), message, errorPath);
+        for (Node child : node.children.values()) {
+            fail(child, message, errorPath, results);
+        }
+    }
+
+    private static final class Node {
+        private final JsonPointer path;
+        private final Map<JsonPointer.RefToken, Node> children = new LinkedHashMap<JsonPointer.RefToken, Node>();
+        // index of the pointer ending here, if any
+        private int index = -1;
+
+        Node(JsonPointer path) {
+            this.path = path;
+        }
+    }
+}
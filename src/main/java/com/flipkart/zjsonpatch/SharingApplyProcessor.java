@@ -0,0 +1,86 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Applies a patch without modifying the source document and without copying it as a whole. Before an
+ * operation modifies a container, every container on the path to it that still belongs to the source is
+ * copied shallowly and linked into its already copied parent; all other subtrees are shared between the
+ * source and the result. Applying a patch therefore costs time and memory proportional to the size of
+ * the containers along the modified paths, not to the size of the document.
+ *
+ * <p>Containers of the source are never modified, so they never contain copied containers. That makes it
+ * safe for {@link Operation#COPY} operations to share values that still belong to the source; copied
+ * containers are deep-copied as usual, since they may still be modified through their original location.
+ */
+class SharingApplyProcessor extends InPlaceApplyProcessor {
+    // containers created by this processor, which may be modified in place
+    private final Set<JsonElement> owned = Collections.newSetFromMap(new IdentityHashMap<JsonElement, Boolean>());
+
+    SharingApplyProcessor(JsonElement source) {
+        this(source, CompatibilityFlags.defaults());
+    }
+
+    SharingApplyProcessor(JsonElement source, EnumSet<CompatibilityFlags> flags) {
+        super(source, flags);
+    }
+
+    @Override
+    JsonElement prepareForUpdate(JsonPointer path, JsonElement[] nodes, int depth) {
+        // owned containers are only ever linked into owned parents
+        if (owned.contains(nodes[depth]))
+            return nodes[depth];
+
+        for (int idx = 0; idx <= depth; idx++) {
+            JsonElement node = nodes[idx];
+            if (!isContainer(node) || owned.contains(node))
+                continue;
+            JsonElement copy = copyContainer(node);
+            if (idx == 0) {
+                setResult(copy);
+            } else {
+                JsonPointer.RefToken token = path.get(idx - 1);
+                if (nodes[idx - 1].isJsonArray())
+                    nodes[idx - 1].getAsJsonArray().set(token.getIndex(), copy);
+                else
+                    nodes[idx - 1].getAsJsonObject().add(token.getField(), copy);
+            }
+            nodes[idx] = copy;
+        }
+        return nodes[depth];
+    }
+
+    @Override
+    JsonElement copyOf(JsonElement value) {
+        return isContainer(value) && owned.contains(value) ? value.deepCopy() : value;
+    }
+
+    private static boolean isContainer(JsonElement element) {
+        return element.isJsonArray() || element.isJsonObject();
+    }
+
+    private JsonElement copyContainer(JsonElement container) {
+        JsonElement copy;
+        if (container.isJsonArray()) {
+            JsonArray array = new JsonArray(container.getAsJsonArray().size());
+            array.addAll(container.getAsJsonArray());
+            copy = array;
+        } else {
+            JsonObject object = new JsonObject();
+            for (Map.Entry<String, JsonElement> entry : container.getAsJsonObject().entrySet()) {
+                object.add(entry.getKey(), entry.getValue());
+            }
+            copy = object;
+        }
+        owned.add(copy);
+        return copy;
+    }
+}
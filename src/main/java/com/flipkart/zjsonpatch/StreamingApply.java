@@ -0,0 +1,408 @@
+package com.flipkart.zjsonpatch;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Applies a patch while copying a document from a {@link JsonReader} to a {@link JsonWriter}, materializing only
+ * the subtrees the patch touches.
+ *
+ * <p>Each operation is assigned a slot: the subtree it reads or modifies. Operations that insert or remove an
+ * element of what may be an array modify the siblings of that element, so their slot is the whole array; all
+ * others only need the member or element they point to. The slots of operations that move or copy values
+ * span both locations. Slots are kept in a trie, in which a slot absorbs the slots below it, so the remaining
+ * slots are disjoint and no operation depends on operations of other slots. Memory is thus bounded by the
+ * largest slot, and the output is written as the source is read.
+ *
+ * <p>A slot whose operations all add to the end of an array ("-") is streamed like an untouched array, the
+ * values being written after its last element, so appending to a large array doesn't materialize it.
+ *
+ * <p>Containers above slots are streamed; the subtree of each slot is read, patched by its operations and
+ * written in its place. The operations of a slot that is a member of an object are applied to a scope object
+ * holding just that member, so they can remove it or add it when absent; members a sequential apply would have
+ * appended to their object are written after the others, in the order they were appended. Operations are
+ * applied with paths relative to their scope, and errors are rebased onto the document, so error messages and
+ * pointers are those of a sequential apply. Slots the source lacks are looked for below the deepest container
+ * it has, which makes their operations fail as they would on the whole document.
+ */
+final class StreamingApply {
+    private final Patch patch;
+    private final EnumSet<CompatibilityFlags> flags;
+    private final Node root = new Node();
+    // the earliest failing operation found so far; a sequential apply would have stopped there
+    private int failedAt = Integer.MAX_VALUE;
+    private RuntimeException failure;
+
+    /** A node of the trie of slots; the children of a slot are discarded. */
+    private static final class Node {
+        final Map<String, Node> children = new LinkedHashMap<String, Node>();
+        boolean slot;
+        // indices of the operations of this slot, in patch order
+        final List<Integer> operations = new ArrayList<Integer>();
+        // whether all operations of this slot add to the end of the array it may be
+        boolean appendOnly = true;
+    }
+
+    /** A member of an object written once all other members are. */
+    private static final class Member {
+        final int appendedAt;
+        final String name;
+        final JsonElement value;
+
+        Member(int appendedAt, String name, JsonElement value) {
+            this.appendedAt = appendedAt;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    private static final Comparator<Member> APPEND_ORDER = new Comparator<Member>() {
+        @Override
+        public int compare(Member a, Member b) {
+            return a.appendedAt < b.appendedAt ? -1 : (a.appendedAt == b.appendedAt ? 0 : 1);
+        }
+    };
+
+    private StreamingApply(Patch patch, EnumSet<CompatibilityFlags> flags) {
+        this.patch = patch;
+        this.flags = flags;
+
+        List<PatchOperation> operations = patch.getOperations();
+        int[] slotSizes = new int[operations.size()];
+        for (int idx = 0; idx < operations.size(); idx++) {
+            slotSizes[idx] = slotSize(operations.get(idx));
+            addSlot(operations.get(idx).getPath(), slotSizes[idx]);
+        }
+        for (int idx = 0; idx < operations.size(); idx++) {
+            PatchOperation operation = operations.get(idx);
+            Node node = root;
+            int depth = 0;
+            for (; !node.slot; depth++) {
+                node = node.children.get(operation.getPath().get(depth).getField());
+            }
+            node.operations.add(idx);
+            node.appendOnly &= operation.getOperation() == Operation.ADD && operation.getPath().size() == depth + 1
+                    && operation.getPath().last().isArrayIndex()
+                    && operation.getPath().last().getIndex() == JsonPointer.LAST_INDEX;
+        }
+    }
+
+    static void apply(Patch patch, JsonReader source, JsonWriter target, EnumSet<CompatibilityFlags> flags)
+            throws IOException {
+        StreamingApply apply = new StreamingApply(patch, flags);
+        if (!apply.root.slot)
+            apply.stream(source, target, apply.root, JsonPointer.ROOT);
+        else if (!apply.append(source, target, apply.root))
+            InternalUtils.ELEMENT_ADAPTER.write(target, apply.apply(apply.root, InternalUtils.ELEMENT_ADAPTER.read(source), JsonPointer.ROOT));
+        target.flush();
+        if (apply.failure != null)
+            throw apply.failure;
+    }
+
+    /**
+     * Returns the number of leading tokens of the operation's path that point to its slot. The slot of a move
+     * or copy is the deepest node containing both its source and its destination slot, so it's a prefix of both.
+     */
+    private static int slotSize(PatchOperation operation) {
+        JsonPointer path = operation.getPath();
+        switch (operation.getOperation()) {
+            case TEST:
+            case REPLACE:
+                // neither changes the number of elements of an array
+                return path.size();
+            case COPY:
+                return commonPrefix(path, anchorSize(path), operation.getFrom(), operation.getFrom().size());
+            case MOVE:
+                return commonPrefix(path, anchorSize(path), operation.getFrom(), anchorSize(operation.getFrom()));
+            default:
+                return anchorSize(path);
+        }
+    }
+
+    /** Returns the size of the slot needed to modify {@code path}: its parent if it may be an array element. */
+    private static int anchorSize(JsonPointer path) {
+        return path.isRoot() || path.last().isArrayIndex() ? Math.max(0, path.size() - 1) : path.size();
+    }
+
+    private static int commonPrefix(JsonPointer a, int aSize, JsonPointer b, int bSize) {
+        return a.commonPrefix(b, Math.min(aSize, bSize));
+    }
+
+    private void addSlot(JsonPointer path, int size) {
+        Node node = root;
+        for (int depth = 0; depth < size; depth++) {
+            if (node.slot)
+                return;
+            String token = path.get(depth).getField();
+            Node child = node.children.get(token);
+            if (child == null) {
+                child = new Node();
+                node.children.put(token, child);
+            }
+            node = child;
+        }
+        node.slot = true;
+        node.children.clear();
+    }
+
+    private void stream(JsonReader in, JsonWriter out, Node node, JsonPointer path) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                streamObject(in, out, node, path);
+                break;
+            case BEGIN_ARRAY:
+                streamArray(in, out, node, path);
+                break;
+            default:
+                JsonElement value = InternalUtils.ELEMENT_ADAPTER.read(in);
+                InternalUtils.ELEMENT_ADAPTER.write(out, value);
+                for (Node child : node.children.values()) {
+                    applyUnreachable(child, value, path);
+                }
+        }
+    }
+
+    private void streamObject(JsonReader in, JsonWriter out, Node node, JsonPointer path) throws IOException {
+        Set<String> visited = new HashSet<String>();
+        List<Member> appended = new ArrayList<Member>();
+        in.beginObject();
+        out.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            Node child = node.children.get(name);
+            if (child == null || !visited.add(name)) {
+                out.name(name);
+                copy(in, out);
+            } else if (child.slot && child.appendOnly && in.peek() == JsonToken.BEGIN_ARRAY) {
+                out.name(name);
+                append(in, out, child);
+            } else if (child.slot) {
+                member(name, InternalUtils.ELEMENT_ADAPTER.read(in), child, path, out, appended);
+            } else {
+                out.name(name);
+                stream(in, out, child, path.append(name));
+            }
+        }
+        in.endObject();
+
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            if (visited.contains(child.getKey()))
+                continue;
+            if (child.getValue().slot)
+                member(child.getKey(), null, child.getValue(), path, out, appended);
+            else
+                applyUnreachable(child.getValue(), new JsonObject(), path);
+        }
+        Collections.sort(appended, APPEND_ORDER);
+        for (Member member : appended) {
+            out.name(member.name);
+            InternalUtils.ELEMENT_ADAPTER.write(out, member.value);
+        }
+        out.endObject();
+    }
+
+    private void streamArray(JsonReader in, JsonWriter out, Node node, JsonPointer path) throws IOException {
+        Set<String> visited = new HashSet<String>();
+        in.beginArray();
+        out.beginArray();
+        for (int index = 0; in.hasNext(); index++) {
+            String token = Integer.toString(index);
+            Node child = node.children.get(token);
+            if (child == null) {
+                copy(in, out);
+            } else if (child.slot) {
+                visited.add(token);
+                if (!append(in, out, child)) {
+                    JsonElement value = InternalUtils.ELEMENT_ADAPTER.read(in);
+                    InternalUtils.ELEMENT_ADAPTER.write(out, apply(child, value, path.append(index)));
+                }
+            } else {
+                visited.add(token);
+                stream(in, out, child, path.append(index));
+            }
+        }
+        in.endArray();
+
+        for (Map.Entry<String, Node> child : node.children.entrySet()) {
+            if (!visited.contains(child.getKey()))
+                applyUnreachable(child.getValue(), new JsonArray(), path);
+        }
+        out.endArray();
+    }
+
+    /**
+     * Streams the array {@code in} is at, writing the values of the operations of {@code slot} after its last
+     * element; returns false without reading anything if {@code slot} has other operations or isn't an array.
+     */
+    private boolean append(JsonReader in, JsonWriter out, Node slot) throws IOException {
+        if (!slot.appendOnly || in.peek() != JsonToken.BEGIN_ARRAY)
+            return false;
+        in.beginArray();
+        out.beginArray();
+        while (in.hasNext()) {
+            copy(in, out);
+        }
+        in.endArray();
+        for (int idx : slot.operations) {
+            InternalUtils.ELEMENT_ADAPTER.write(out, patch.getOperations().get(idx).getValue());
+        }
+        out.endArray();
+        return true;
+    }
+
+    /**
+     * Applies the operations of the slot of member {@code name} of the object at {@code parent}, whose value is
+     * null if the source lacks the member, and writes the member or adds it to {@code appended}.
+     */
+    private void member(String name, JsonElement value, Node slot, JsonPointer parent, JsonWriter out,
+                        List<Member> appended) throws IOException {
+        JsonObject scope = new JsonObject();
+        if (value != null)
+            scope.add(name, value);
+        apply(slot, scope, parent);
+        JsonElement result = scope.get(name);
+        if (result == null)
+            return;
+
+        int appendedAt = appendedAt(slot, parent.append(name), value != null);
+        if (appendedAt < 0) {
+            out.name(name);
+            InternalUtils.ELEMENT_ADAPTER.write(out, result);
+        } else {
+            appended.add(new Member(appendedAt, name, result));
+        }
+    }
+
+    /**
+     * Returns the index of the operation that last added the member at {@code path} to its object while it
+     * was absent, or -1 if the member keeps its place.
+     */
+    private int appendedAt(Node slot, JsonPointer path, boolean present) {
+        int appendedAt = -1;
+        for (int idx : slot.operations) {
+            PatchOperation operation = patch.getOperations().get(idx);
+            if ((operation.getOperation() == Operation.REMOVE && operation.getPath().equals(path))
+                    || (operation.getOperation() == Operation.MOVE && operation.getFrom().equals(path))) {
+                present = false;
+                appendedAt = -1;
+            }
+            if (operation.getOperation() != Operation.REMOVE && operation.getOperation() != Operation.TEST
+                    && operation.getPath().equals(path) && !present) {
+                present = true;
+                appendedAt = idx;
+            }
+        }
+        return appendedAt;
+    }
+
+    /**
+     * Applies the operations of the slots below {@code node}, which the source lacks, to a copy of
+     * {@code container}, the node at {@code path} that should have held them.
+     */
+    private void applyUnreachable(Node node, JsonElement container, JsonPointer path) {
+        if (node.slot) {
+            apply(node, container.deepCopy(), path);
+        } else {
+            for (Node child : node.children.values()) {
+                applyUnreachable(child, container, path);
+            }
+        }
+    }
+
+    /**
+     * Applies the operations of {@code slot} to {@code target}, the node at {@code base}, stopping at the first
+     * failing one.
+     */
+    private JsonElement apply(Node slot, JsonElement target, JsonPointer base) {
+        InPlaceApplyProcessor processor = new InPlaceApplyProcessor(target, flags);
+        int size = base.size();
+        for (int idx : slot.operations) {
+            if (idx > failedAt)
+                break;
+            PatchOperation operation = patch.getOperations().get(idx);
+            try {
+                JsonPatch.process(new PatchOperation(operation.getOperation(), operation.getPath().suffix(size),
+                        operation.getFrom() == null ? null : operation.getFrom().suffix(size),
+                        operation.getValue(), operation.getFromValue()), processor, true);
+            } catch (JsonPatchApplicationException e) {
+                fail(idx, new JsonPatchApplicationException(e.getMessage(), e.getOperation(),
+                        e.getPath() == null ? null : base.append(e.getPath())));
+                break;
+            } catch (RuntimeException e) {
+                fail(idx, e);
+                break;
+            }
+        }
+        processor.flush();
+        return processor.result();
+    }
+
+    private void fail(int idx, RuntimeException e) {
+        if (idx < failedAt) {
+            failedAt = idx;
+            failure = e;
+        }
+    }
+
+    /** Copies the next value from {@code in} to {@code out} token by token. */
+    private static void copy(JsonReader in, JsonWriter out) throws IOException {
+        int depth = 0;
+        do {
+            switch (in.peek()) {
+                case BEGIN_ARRAY:
+                    in.beginArray();
+                    out.beginArray();
+                    depth++;
+                    break;
+                case END_ARRAY:
+                    in.endArray();
+                    out.endArray();
+                    depth--;
+                    break;
+                case BEGIN_OBJECT:
+                    in.beginObject();
+                    out.beginObject();
+                    depth++;
+                    break;
+                case END_OBJECT:
+                    in.endObject();
+                    out.endObject();
+                    depth--;
+                    break;
+                case NAME:
+                    out.name(in.nextName());
+                    break;
+                case STRING:
+                    out.value(in.nextString());
+                    break;
+                case NUMBER:
+                    out.jsonValue(in.nextString());
+                    break;
+                case BOOLEAN:
+                    out.value(in.nextBoolean());
+                    break;
+                case NULL:
+                    in.nextNull();
+                    out.nullValue();
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected " + in.peek() + " at " + in.getPath());
+            }
+        } while (depth > 0);
+    }
+}
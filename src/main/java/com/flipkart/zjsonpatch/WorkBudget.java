@@ -0,0 +1,49 @@
+package com.flipkart.zjsonpatch;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the work {@link Lcs} spends aligning arrays, both per array and across a whole diff. Work is
+ * counted in visited cells of the edit graph, i.e. diagonal extensions plus matched elements, and is
+ * charged once per round of the alignment so the check stays off the inner loops.
+ *
+ * <p>The diff-wide allowance is shared by all parallel tasks of a diff; once it is used up, every
+ * further array alignment fails.
+ */
+final class WorkBudget {
+    private final long maxArrayWork;
+    // null if the diff-wide work is unbounded
+    private final AtomicLong remainingDiffWork;
+
+    WorkBudget(long maxArrayWork, long maxDiffWork) {
+        this.maxArrayWork = maxArrayWork;
+        this.remainingDiffWork = maxDiffWork == Long.MAX_VALUE ? null : new AtomicLong(maxDiffWork);
+    }
+
+    /**
+     * Returns a meter for the alignment of one array, or {@code null} if no limit applies.
+     */
+    Meter startArray() {
+        if (maxArrayWork == Long.MAX_VALUE && remainingDiffWork == null) return null;
+        return new Meter();
+    }
+
+    final class Meter {
+        private long spent;
+        private boolean exhausted;
+
+        /**
+         * @return {@code false} if the work exceeds what is left of the array's or the diff's allowance.
+         */
+        boolean charge(long work) {
+            spent += work;
+            if (spent > maxArrayWork || (remainingDiffWork != null && remainingDiffWork.addAndGet(-work) < 0))
+                exhausted = true;
+            return !exhausted;
+        }
+
+        boolean isExhausted() {
+            return exhausted;
+        }
+    }
+}
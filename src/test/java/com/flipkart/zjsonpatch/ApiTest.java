@@ -17,7 +17,8 @@
 package com.flipkart.zjsonpatch;
 
 import static org.hamcrest.CoreMatchers.is;
-import static org.junit.Assert.assertThat;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -27,6 +28,7 @@ import org.junit.Test;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
@@ -70,6 +72,60 @@ public class ApiTest {
         assertTrue(findValue(source, "b").isJsonNull());
     }
 
+    @Test
+    public void applyDoesNotShareValuesWithPatch() throws Exception {
+        JsonElement patch = readTree("[{ \"op\": \"add\", \"path\": \"/b\", \"value\": {\"c\": 1} }," +
+                "{ \"op\": \"test\", \"path\": \"/b\", \"value\": {\"c\": 1} }]");
+        JsonElement beforeApplication = patch.deepCopy();
+        JsonObject source = newObjectNode();
+        JsonElement result = JsonPatch.apply(patch, source);
+        JsonPatch.applyInPlace(patch, source);
+
+        result.getAsJsonObject().getAsJsonObject("b").addProperty("c", 2);
+        source.getAsJsonObject("b").addProperty("c", 3);
+        assertThat(patch, is(beforeApplication));
+    }
+
+    @Test
+    public void applyConsumingMovesValuesIntoResult() throws Exception {
+        JsonElement patch = readTree("[{ \"op\": \"add\", \"path\": \"/b\", \"value\": {\"c\": 1} }," +
+                "{ \"op\": \"replace\", \"path\": \"/a\", \"value\": [1] }]");
+        JsonElement added = patch.getAsJsonArray().get(0).getAsJsonObject().get("value");
+        JsonElement replaced = patch.getAsJsonArray().get(1).getAsJsonObject().get("value");
+        JsonObject source = readTree("{\"a\": 0}").getAsJsonObject();
+
+        JsonElement result = JsonPatch.applyConsuming(patch, source);
+        assertSame(added, result.getAsJsonObject().get("b"));
+        assertSame(replaced, result.getAsJsonObject().get("a"));
+        assertThat(source, is(readTree("{\"a\": 0}")));
+
+        JsonPatch.applyInPlaceConsuming(readTree("[{ \"op\": \"add\", \"path\": \"/b\", \"value\": 1 }]"), source);
+        assertThat(findValue(source, "b").getAsInt(), is(1));
+    }
+
+    @Test
+    public void operationsSeeContainersReplacedByEarlierOperations() throws Exception {
+        JsonElement patch = readTree("[{ \"op\": \"add\", \"path\": \"/a/b/c\", \"value\": 1 }," +
+                "{ \"op\": \"add\", \"path\": \"/a/b/d\", \"value\": 2 }," +
+                "{ \"op\": \"replace\", \"path\": \"/a/b\", \"value\": {\"e\": [0]} }," +
+                "{ \"op\": \"add\", \"path\": \"/a/b/e/0\", \"value\": 3 }," +
+                "{ \"op\": \"move\", \"from\": \"/a/b\", \"path\": \"/f\" }," +
+                "{ \"op\": \"add\", \"path\": \"/a/b\", \"value\": {} }," +
+                "{ \"op\": \"add\", \"path\": \"/a/b/g\", \"value\": 4 }," +
+                "{ \"op\": \"replace\", \"path\": \"\", \"value\": {\"a\": {\"b\": {}}} }," +
+                "{ \"op\": \"add\", \"path\": \"/a/b/h\", \"value\": 5 }]");
+        JsonElement expected = readTree("{\"a\": {\"b\": {\"h\": 5}}}");
+
+        assertThat(JsonPatch.apply(patch, readTree("{\"a\": {\"b\": {}}}")), is(expected));
+        assertThat(JsonPatch.applySharing(patch, readTree("{\"a\": {\"b\": {}}}")), is(expected));
+        JsonElement prefix = new JsonArray();
+        for (int i = 0; i < 7; i++) {
+            prefix.getAsJsonArray().add(patch.getAsJsonArray().get(i));
+        }
+        assertThat(JsonPatch.apply(prefix, readTree("{\"a\": {\"b\": {}}}")),
+                is(readTree("{\"a\": {\"b\": {\"g\": 4}}, \"f\": {\"e\": [3, 0]}}")));
+    }
+
     @Test(expected = InvalidJsonPatchException.class)
     public void applyingNonArrayPatchShouldThrowAnException() throws IOException {
     	JsonElement invalid = objectMapper.fromJson("{\"not\": \"a patch\"}", JsonElement.class);
@@ -0,0 +1,85 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+public class ArraySpliceTest {
+
+    @Test
+    public void spliceMatchesArrayOperations() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            JsonArray expected = new JsonArray();
+            for (int j = random.nextInt(20); j > 0; j--) {
+                expected.add(j);
+            }
+            JsonArray actual = expected.deepCopy();
+            ArraySplice splice = new ArraySplice(actual);
+            for (int j = 0; j < 30; j++) {
+                int op = random.nextInt(3);
+                if (op == 0 || expected.size() == 0) {
+                    int index = random.nextInt(expected.size() + 1);
+                    expected.asList().add(index, new JsonPrimitive(j));
+                    splice.add(index, new JsonPrimitive(j));
+                } else if (op == 1) {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.remove(index), splice.remove(index));
+                } else {
+                    int index = random.nextInt(expected.size());
+                    assertEquals(expected.set(index, new JsonPrimitive(-j)), splice.set(index, new JsonPrimitive(-j)));
+                }
+                assertEquals(expected.asList(), splice);
+            }
+            splice.commit();
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void consecutiveArrayOperationsAreApplied() {
+        JsonArray source = new JsonArray();
+        JsonArray expected = new JsonArray();
+        JsonArray patch = new JsonArray();
+        for (int i = 0; i < 1000; i++) {
+            source.add(i);
+            expected.add(i);
+            if (i % 2 == 0) {
+                expected.add(-i);
+                patch.add(TestUtils.readTree("{\"op\": \"add\", \"path\": \"/a/" + (i + 1 + i / 2) + "\", \"value\": " + -i + "}"));
+            }
+        }
+        patch.add(TestUtils.readTree("{\"op\": \"remove\", \"path\": \"/a/0\"}"));
+        patch.add(TestUtils.readTree("{\"op\": \"move\", \"from\": \"/a/0\", \"path\": \"/a/-\"}"));
+        patch.add(TestUtils.readTree("{\"op\": \"test\", \"path\": \"/a/1\", \"value\": 2}"));
+        expected.remove(0);
+        expected.add(expected.remove(0));
+
+        JsonElement document = TestUtils.readTree("{}");
+        document.getAsJsonObject().add("a", source);
+        JsonPatch.applyInPlace(patch, document);
+
+        assertEquals(expected, document.getAsJsonObject().get("a"));
+    }
+
+    @Test
+    public void failingOperationLeavesEarlierOperationsApplied() {
+        JsonElement document = TestUtils.readTree("{\"a\": [1, 2, 3]}");
+        try {
+            JsonPatch.applyInPlace(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a/0\"}," +
+                    "{\"op\": \"add\", \"path\": \"/a/0\", \"value\": 4}," +
+                    "{\"op\": \"remove\", \"path\": \"/a/5\"}]"), document, EnumSet.noneOf(CompatibilityFlags.class));
+        } catch (JsonPatchApplicationException e) {
+            assertEquals(TestUtils.readTree("{\"a\": [4, 2, 3]}"), document);
+            return;
+        }
+        throw new AssertionError("expected the patch to fail");
+    }
+}
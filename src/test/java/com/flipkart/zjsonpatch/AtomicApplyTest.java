@@ -0,0 +1,76 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+public class AtomicApplyTest {
+
+    @Test
+    public void inversePatchRevertsAppliedPatch() {
+        Random random = new Random(23);
+        for (int i = 0; i < 300; i++) {
+            JsonElement first = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement second = TestDataGenerator.generate(random.nextInt(10));
+            for (EnumSet<DiffFlags> flags : Arrays.asList(DiffFlags.defaults(), DiffFlags.dontNormalizeOpIntoMoveAndCopy())) {
+                JsonArray patch = JsonDiff.asJson(first, second, flags);
+                JsonElement document = first.deepCopy();
+
+                Patch inverse = JsonPatch.applyInPlaceAtomically(patch, document);
+                assertEquals(second, document);
+                assertEquals(first, JsonPatch.apply(inverse, document));
+            }
+        }
+    }
+
+    @Test
+    public void failedPatchIsRolledBack() {
+        JsonElement document = TestUtils.readTree("{\"a\": [1, 2, 3], \"b\": {\"c\": 1}, \"d\": 0}");
+        JsonElement original = document.deepCopy();
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a/0\"}," +
+                "{\"op\": \"add\", \"path\": \"/a/-\", \"value\": 4}," +
+                "{\"op\": \"replace\", \"path\": \"/b/c\", \"value\": 2}," +
+                "{\"op\": \"move\", \"from\": \"/b\", \"path\": \"/a/1\"}," +
+                "{\"op\": \"copy\", \"from\": \"/a\", \"path\": \"/d\"}," +
+                "{\"op\": \"remove\", \"path\": \"/e\"}]");
+        try {
+            JsonPatch.applyInPlaceAtomically(patch, document, EnumSet.of(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT));
+            fail("expected the patch to fail");
+        } catch (JsonPatchApplicationException e) {
+            assertEquals("Missing field e", e.getMessage());
+        }
+        assertEquals(original, document);
+    }
+
+    @Test
+    public void replacedRootIsRestored() {
+        JsonElement document = TestUtils.readTree("{\"a\": {\"b\": 1}}");
+        try {
+            JsonPatch.applyInPlaceAtomically(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a/b\"}," +
+                    "{\"op\": \"move\", \"from\": \"/a\", \"path\": \"\"}," +
+                    "{\"op\": \"test\", \"path\": \"/b\", \"value\": 1}]"), document);
+            fail("expected the patch to fail");
+        } catch (JsonPatchApplicationException e) {
+            assertEquals(TestUtils.readTree("{\"a\": {\"b\": 1}}"), document);
+        }
+    }
+
+    @Test
+    public void inversePatchIsIndependentOfDocument() {
+        JsonElement document = TestUtils.readTree("{\"a\": {\"b\": 1}, \"c\": {\"d\": 2}}");
+        Patch inverse = JsonPatch.applyInPlaceAtomically(TestUtils.readTree("[{\"op\": \"move\", \"from\": \"/a\", \"path\": \"/c\"}]"), document);
+        assertEquals(TestUtils.readTree("{\"c\": {\"b\": 1}}"), document);
+
+        document.getAsJsonObject().getAsJsonObject("c").addProperty("b", 3);
+        JsonPatch.applyInPlace(inverse, document);
+        assertEquals(TestUtils.readTree("{\"a\": {\"b\": 1}, \"c\": {\"d\": 2}}"), document);
+    }
+}
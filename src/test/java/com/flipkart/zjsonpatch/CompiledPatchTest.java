@@ -0,0 +1,83 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+
+public class CompiledPatchTest {
+
+    @Test
+    public void compiledPatchAppliesLikeJsonPatch() {
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/tags/-\", \"value\": {\"name\": \"new\"}}," +
+                "{\"op\": \"copy\", \"from\": \"/tags/0\", \"path\": \"/first\"}," +
+                "{\"op\": \"test\", \"path\": \"/first\", \"value\": \"a\"}]");
+        CompiledPatch compiled = JsonPatch.compile(patch);
+
+        for (int i = 0; i < 3; i++) {
+            JsonElement source = TestUtils.readTree("{\"tags\": [\"a\", \"b\"]}");
+            JsonElement expected = JsonPatch.apply(patch, source);
+
+            assertEquals(expected, compiled.apply(source));
+            assertEquals(TestUtils.readTree("{\"tags\": [\"a\", \"b\"]}"), source);
+            compiled.applyInPlace(source);
+            assertEquals(expected, source);
+        }
+    }
+
+    @Test
+    public void compiledPatchCanBeAppliedConcurrently() throws Exception {
+        final CompiledPatch compiled = JsonPatch.compile(TestUtils.readTree(
+                "[{\"op\": \"replace\", \"path\": \"/a/b\", \"value\": [1, 2, 3]}, {\"op\": \"remove\", \"path\": \"/c\"}]"));
+        final JsonElement expected = TestUtils.readTree("{\"a\": {\"b\": [1, 2, 3]}}");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<JsonElement>> results = new ArrayList<Future<JsonElement>>();
+            for (int i = 0; i < 100; i++) {
+                results.add(executor.submit(new Callable<JsonElement>() {
+                    @Override
+                    public JsonElement call() {
+                        JsonElement document = TestUtils.readTree("{\"a\": {\"b\": null}, \"c\": 1}");
+                        compiled.applyInPlace(document);
+                        return document;
+                    }
+                }));
+            }
+            for (Future<JsonElement> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void compilationBindsCompatibilityFlags() {
+        CompiledPatch compiled = JsonPatch.compile(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a\"}]"),
+                EnumSet.of(CompatibilityFlags.MISSING_VALUES_AS_NULLS));
+
+        assertEquals(TestUtils.readTree("{\"a\": null}"), compiled.apply(TestUtils.readTree("{}")));
+    }
+
+    @Test
+    public void operationNamesAreCaseInsensitive() {
+        CompiledPatch compiled = JsonPatch.compile(TestUtils.readTree("[{\"op\": \"REMOVE\", \"path\": \"/a\"}]"));
+
+        assertEquals(TestUtils.readTree("{}"), compiled.apply(TestUtils.readTree("{\"a\": 1}")));
+    }
+
+    @Test(expected = InvalidJsonPatchException.class)
+    public void invalidPatchIsRejectedOnCompilation() {
+        JsonPatch.compile(TestUtils.readTree("[{\"op\": \"move\", \"path\": \"/a\"}]"));
+    }
+}
@@ -0,0 +1,78 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
+
+public class DiffSinkTest {
+
+    private static final List<EnumSet<DiffFlags>> ALL_FLAGS = Arrays.asList(
+            DiffFlags.defaults(),
+            DiffFlags.dontNormalizeOpIntoMoveAndCopy(),
+            EnumSet.of(DiffFlags.OMIT_MOVE_OPERATION, DiffFlags.OMIT_COPY_OPERATION, DiffFlags.EMIT_TEST_OPERATIONS),
+            EnumSet.of(DiffFlags.OMIT_MOVE_OPERATION, DiffFlags.OMIT_COPY_OPERATION,
+                    DiffFlags.ADD_ORIGINAL_VALUE_ON_REPLACE, DiffFlags.ADD_EXPLICIT_REMOVE_ADD_ON_REPLACE));
+
+    @Test
+    public void writerSinkWritesSamePatchAsArrayResult() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            JsonElement first = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement second = TestDataGenerator.generate(random.nextInt(10));
+            for (EnumSet<DiffFlags> flags : ALL_FLAGS) {
+                StringWriter out = new StringWriter();
+                JsonDiff.asJson(first, second, flags, new JsonWriterDiffSink(new JsonWriter(out)));
+
+                assertEquals(JsonDiff.asJson(first, second, flags), TestUtils.readTree(out.toString()));
+            }
+        }
+    }
+
+    @Test
+    public void sinkIsNotifiedAroundOperations() {
+        final List<String> events = new ArrayList<String>();
+        DiffSink sink = new DiffSink() {
+            @Override
+            public void begin() {
+                events.add("begin");
+            }
+
+            @Override
+            public void accept(JsonObject operation) {
+                events.add(operation.get("op").getAsString());
+            }
+
+            @Override
+            public void end() {
+                events.add("end");
+            }
+        };
+
+        JsonDiff.asJson(TestUtils.readTree("{\"a\": 1, \"b\": [1, 2]}"), TestUtils.readTree("{\"a\": 2, \"b\": [1]}"),
+                DiffFlags.dontNormalizeOpIntoMoveAndCopy(), sink);
+
+        assertEquals(Arrays.asList("begin", "replace", "remove", "end"), events);
+    }
+
+    @Test
+    public void writerSinkKeepsNullValues() {
+        StringWriter out = new StringWriter();
+        JsonDiff.asJson(TestUtils.readTree("{}"), TestUtils.readTree("{\"a\": null}"), DiffFlags.defaults(),
+                new JsonWriterDiffSink(new JsonWriter(out)));
+
+        JsonArray patch = TestUtils.readTree(out.toString()).getAsJsonArray();
+        assertEquals(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a\", \"value\": null}]"), patch);
+    }
+}
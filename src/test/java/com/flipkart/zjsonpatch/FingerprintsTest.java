@@ -0,0 +1,80 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+public class FingerprintsTest {
+
+    @Test
+    public void objectFingerprintIgnoresKeyOrder() {
+        Fingerprints fingerprints = new Fingerprints();
+        JsonElement first = TestUtils.readTree("{\"a\": 1, \"b\": [true, null, \"x\"]}");
+        JsonElement second = TestUtils.readTree("{\"b\": [true, null, \"x\"], \"a\": 1}");
+
+        assertEquals(fingerprints.of(first), fingerprints.of(second));
+        assertTrue(fingerprints.equal(first, second));
+        assertEquals(fingerprints.key(first), fingerprints.key(second));
+    }
+
+    @Test
+    public void arrayFingerprintDependsOnOrder() {
+        Fingerprints fingerprints = new Fingerprints();
+        assertNotEquals(fingerprints.of(TestUtils.readTree("[1, 2]")), fingerprints.of(TestUtils.readTree("[2, 1]")));
+        assertFalse(fingerprints.equal(TestUtils.readTree("[1, 2]"), TestUtils.readTree("[2, 1]")));
+    }
+
+    @Test
+    public void numberFingerprintsAgreeWithEquals() {
+        Fingerprints fingerprints = new Fingerprints();
+        JsonElement parsed = TestUtils.readTree("1");
+        JsonElement integer = new JsonPrimitive(1);
+        JsonElement decimal = new JsonPrimitive(1.0d);
+
+        assertEquals(parsed, integer);
+        assertTrue(fingerprints.equal(parsed, integer));
+        assertTrue(fingerprints.equal(integer, decimal));
+        assertTrue(fingerprints.equal(new JsonPrimitive(0.0d), new JsonPrimitive(-0.0d)));
+        assertFalse(fingerprints.equal(new JsonPrimitive(1), new JsonPrimitive("1")));
+    }
+
+    @Test
+    public void wholeNumbersAreHashedExactly() {
+        Fingerprints fingerprints = new Fingerprints();
+        JsonElement parsed = TestUtils.readTree("9007199254740993");
+
+        // 2^53 + 1 and 2^53 are the same double
+        assertFalse(fingerprints.equal(parsed, TestUtils.readTree("9007199254740992")));
+        assertFalse(fingerprints.equal(new JsonPrimitive(9007199254740993L), new JsonPrimitive(9007199254740992L)));
+        assertFalse(fingerprints.equal(parsed, new JsonPrimitive(9007199254740992L)));
+        assertTrue(fingerprints.equal(parsed, new JsonPrimitive(9007199254740993L)));
+        assertTrue(fingerprints.equal(parsed, new JsonPrimitive(new BigInteger("9007199254740993"))));
+        assertTrue(fingerprints.equal(parsed, TestUtils.readTree("9.007199254740993e15")));
+
+        JsonElement huge = TestUtils.readTree("123456789012345678901234567890");
+        assertFalse(fingerprints.equal(huge, TestUtils.readTree("123456789012345678901234567891")));
+        assertTrue(fingerprints.equal(huge, new JsonPrimitive(new BigDecimal("123456789012345678901234567890.00"))));
+        assertTrue(fingerprints.equal(TestUtils.readTree("1e400"), TestUtils.readTree("10e399")));
+        assertTrue(fingerprints.equal(TestUtils.readTree("0.5"), new JsonPrimitive(0.5d)));
+    }
+
+    @Test
+    public void fingerprintIsCachedPerContainer() {
+        Fingerprints fingerprints = new Fingerprints();
+        JsonArray array = TestUtils.readTree("[{\"a\": 1}]").getAsJsonArray();
+        long before = fingerprints.of(array);
+
+        assertEquals(before, fingerprints.of(array));
+        assertNotEquals(before, fingerprints.of(array.deepCopy().get(0)));
+    }
+}
@@ -20,8 +20,11 @@ import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.Assert;
@@ -72,6 +75,89 @@ public class JsonDiffTest {
         }
     }
 
+    @Test
+    public void testGeneratedJsonDiffWithLinearMemoryArrayAlignment() {
+        Random random = new Random();
+        DiffOptions options = DiffOptions.defaults().withMaxLcsCells(0);
+        for (int i = 0; i < 1000; i++) {
+            JsonElement first = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement second = TestDataGenerator.generate(random.nextInt(10));
+            JsonArray actualPatch = JsonDiff.asJson(first, second, DiffFlags.defaults(), options);
+            JsonElement secondPrime = JsonPatch.apply(actualPatch, first);
+            Assert.assertEquals(second, secondPrime);
+        }
+    }
+
+    @Test
+    public void testParallelJsonDiffMatchesSequentialDiff() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            DiffOptions parallel = DiffOptions.defaults().withForkJoinPool(pool).withMinParallelSize(1);
+            List<EnumSet<DiffFlags>> allFlags = Arrays.asList(DiffFlags.defaults(),
+                    DiffFlags.dontNormalizeOpIntoMoveAndCopy(), EnumSet.of(DiffFlags.EMIT_TEST_OPERATIONS));
+            Random random = new Random();
+            for (int i = 0; i < 200; i++) {
+                JsonArray first = new JsonArray();
+                JsonArray second = new JsonArray();
+                for (int j = 0; j < 5; j++) {
+                    first.add(TestDataGenerator.generate(random.nextInt(10)));
+                    second.add(random.nextBoolean() ? first.get(j).deepCopy() : TestDataGenerator.generate(random.nextInt(10)));
+                }
+                for (EnumSet<DiffFlags> flags : allFlags) {
+                    JsonArray expected = JsonDiff.asJson(first, second, flags);
+                    assertEquals(expected, JsonDiff.asJson(first, second, flags, parallel));
+                }
+            }
+            for (int i = 0; i < jsonNode.size(); i++) {
+                JsonElement first = jsonNode.get(i).getAsJsonObject().get("first");
+                JsonElement second = jsonNode.get(i).getAsJsonObject().get("second");
+                assertEquals(JsonDiff.asJson(first, second), JsonDiff.asJson(first, second, DiffFlags.defaults(), parallel));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testLargeNearlyIdenticalArrayDiff() {
+        JsonArray first = new JsonArray();
+        for (int i = 0; i < 20000; i++) {
+            first.add(i);
+        }
+        JsonArray second = first.deepCopy();
+        second.remove(15000);
+        second.set(10000, new JsonObject());
+        second.add("tail");
+
+        JsonArray actualPatch = JsonDiff.asJson(first, second);
+
+        assertEquals(3, actualPatch.size());
+        assertEquals(second, JsonPatch.apply(actualPatch, first));
+    }
+
+    @Test
+    public void testArrayExceedingWorkBudgetIsReplaced() {
+        JsonObject first = new JsonObject();
+        JsonObject second = new JsonObject();
+        JsonArray firstItems = new JsonArray();
+        JsonArray secondItems = new JsonArray();
+        for (int i = 0; i < 1000; i++) {
+            firstItems.add(i);
+            secondItems.add(i % 2 == 0 ? i : -i);
+        }
+        first.add("items", firstItems);
+        second.add("items", secondItems);
+
+        DiffOptions options = DiffOptions.defaults().withMaxArrayWork(10000);
+        JsonArray actualPatch = JsonDiff.asJson(first, second, DiffFlags.defaults(), options);
+
+        assertEquals(1, actualPatch.size());
+        assertEquals(Operation.REPLACE.rfcName(), TestUtils.getTextValue(actualPatch.get(0).getAsJsonObject().get("op")));
+        assertEquals("/items", TestUtils.getTextValue(actualPatch.get(0).getAsJsonObject().get("path")));
+        assertEquals(second, JsonPatch.apply(actualPatch, first));
+        assertEquals(second, JsonPatch.apply(JsonDiff.asJson(first, second, DiffFlags.defaults(), DiffOptions.defaults().withMaxDiffWork(0)), first));
+    }
+
     @Test
     public void testRenderedRemoveOperationOmitsValueByDefault() {
         JsonObject source = new JsonObject();
@@ -157,4 +243,20 @@ public class JsonDiffTest {
         assertEquals(JsonPointer.ROOT.toString(), TestUtils.getTextValue(diff.get(0).getAsJsonObject().get("path")));
         assertEquals("V1", TestUtils.getTextValue(diff.get(0).getAsJsonObject().get("value").getAsJsonObject().get("K1")));
     }
+
+    @Test
+    public void testCopySourceNestedInsideUnchangedValue() {
+        JsonElement source = objectMapper.fromJson("{\"a\": {\"b\": {\"c\": 1}, \"d\": 2}}", JsonElement.class);
+        JsonElement target = objectMapper.fromJson("{\"a\": {\"b\": {\"c\": 1}, \"d\": 2}, \"e\": {\"c\": 1}, \"f\": 2}", JsonElement.class);
+
+        JsonArray diff = JsonDiff.asJson(source, target);
+        JsonElement expected = objectMapper.fromJson("[{\"op\": \"copy\", \"from\": \"/a/b\", \"path\": \"/e\"}," +
+                "{\"op\": \"add\", \"path\": \"/f\", \"value\": 2}]", JsonElement.class);
+        assertEquals(expected, diff);
+
+        DiffOptions scalars = DiffOptions.defaults().withMinCopySize(1);
+        JsonArray scalarDiff = JsonDiff.asJson(source, target, DiffFlags.defaults(), scalars);
+        assertEquals("/a/d", TestUtils.getTextValue(scalarDiff.get(1).getAsJsonObject().get("from")));
+        assertEquals(target, JsonPatch.apply(scalarDiff, source));
+    }
 }
@@ -22,7 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.commons.io.IOUtils;
-import org.junit.Assert;
+import org.hamcrest.MatcherAssert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -56,7 +56,7 @@ public class JsonDiffTest2 {
 
             JsonElement secondPrime = JsonPatch.apply(patch, first);
 
-            Assert.assertThat(message, secondPrime, equalTo(second));
+            MatcherAssert.assertThat(message, secondPrime, equalTo(second));
         }
 
     }
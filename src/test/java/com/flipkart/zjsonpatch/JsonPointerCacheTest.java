@@ -0,0 +1,102 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+
+public class JsonPointerCacheTest {
+
+    @Test
+    public void returnsCanonicalInstances() {
+        JsonPointerCache cache = new JsonPointerCache(4);
+        JsonPointer pointer = cache.parse("/a/0");
+
+        assertEquals(JsonPointer.parse("/a/0"), pointer);
+        assertSame(pointer, cache.parse("/a/0"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedPointer() {
+        JsonPointerCache cache = new JsonPointerCache(2);
+        JsonPointer a = cache.parse("/a");
+        JsonPointer b = cache.parse("/b");
+        cache.parse("/a");
+        cache.parse("/c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, cache.parse("/a"));
+        assertNotSame(b, cache.parse("/b"));
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void doesNotCacheInvalidPointers() {
+        JsonPointerCache cache = new JsonPointerCache(2);
+        try {
+            cache.parse("a");
+        } finally {
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void operationsOnSamePathSharePointer() {
+        JsonPointerCache cache = new JsonPointerCache(16);
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/items/-\", \"value\": 1}," +
+                "{\"op\": \"add\", \"path\": \"/items/-\", \"value\": 2}," +
+                "{\"op\": \"move\", \"from\": \"/items/0\", \"path\": \"/items/-\"}]");
+
+        Patch parsed = Patch.fromJson(patch, CompatibilityFlags.defaults(), cache);
+        assertSame(parsed.getOperations().get(0).getPath(), parsed.getOperations().get(2).getPath());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        assertEquals(TestUtils.readTree("{\"items\": [2, 1]}"),
+                JsonPatch.apply(patch, TestUtils.readTree("{\"items\": []}"), CompatibilityFlags.defaults(), cache));
+        assertEquals(6, cache.getHitCount());
+    }
+
+    @Test
+    public void isSafeForConcurrentUse() throws Exception {
+        final JsonPointerCache cache = new JsonPointerCache(8);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int i = 0; i < 10000; i++) {
+                            String path = "/k" + i % 12;
+                            assertEquals(path, cache.parse(path).toString());
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(40000, cache.getHitCount() + cache.getMissCount());
+        assertEquals(8, cache.size());
+        assertTrue(cache.getEvictionCount() <= cache.getMissCount() - 8);
+    }
+}
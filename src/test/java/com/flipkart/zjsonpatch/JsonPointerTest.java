@@ -128,6 +128,24 @@ public class JsonPointerTest {
         assertEquals("/", parsed.get(0).getField());
     }
 
+    @Test
+    public void decodesEscapeSequencesOnce() {
+        JsonPointer parsed = JsonPointer.parse("/~01/~10");
+        assertEquals("~1", parsed.get(0).getField());
+        assertEquals("/0", parsed.get(1).getField());
+        assertEquals("/~01/~10", parsed.toString());
+    }
+
+    @Test
+    public void parsesArrayIndices() {
+        JsonPointer parsed = JsonPointer.parse("/01/-1/1a/10/99999999999");
+        assertFalse(parsed.get(0).isArrayIndex());
+        assertFalse(parsed.get(1).isArrayIndex());
+        assertFalse(parsed.get(2).isArrayIndex());
+        assertEquals(10, parsed.get(3).getIndex());
+        assertEquals(Integer.MAX_VALUE, parsed.get(4).getIndex());
+    }
+
     // Parsing error conditions --
 
     @Test(expected = IllegalArgumentException.class)
@@ -145,6 +163,11 @@ public class JsonPointerTest {
         JsonPointer.parse("/~a");
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void throwsOnUnterminatedEscapedSequence() {
+        JsonPointer.parse("/a~/b");
+    }
+
     // Evaluation tests --
 
     @Test
@@ -189,5 +212,13 @@ public class JsonPointerTest {
         assertEquals("/ ", JsonPointer.parse("/ ").toString());
         assertEquals("/m~0n", JsonPointer.parse("/m~0n").toString());
     }
+
+    @Test
+    public void rendersConstructedPointers() {
+        JsonPointer pointer = JsonPointer.ROOT.append("a/b").append(0).append("~").append("");
+        assertEquals("/a~1b/0/~0/", pointer.toString());
+        assertEquals(pointer, JsonPointer.parse(pointer.toString()));
+        assertEquals("/a~1b/0/~0", pointer.getParent().toString());
+    }
 }
 
@@ -0,0 +1,123 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class KeyedArrayDiffTest {
+
+    private static final DiffOptions BY_ID = DiffOptions.defaults().withArrayKeyExtractor(ArrayKeyExtractor.field("id"));
+
+    @Test
+    public void editedElementIsDiffedInPlace() {
+        JsonElement source = TestUtils.readTree("{\"items\": [{\"id\": 1, \"v\": \"a\"}, {\"id\": 2, \"v\": \"b\"}]}");
+        JsonElement target = TestUtils.readTree("{\"items\": [{\"id\": 1, \"v\": \"a\"}, {\"id\": 2, \"v\": \"c\"}]}");
+
+        JsonArray diff = JsonDiff.asJson(source, target, DiffFlags.defaults(), BY_ID);
+
+        assertEquals(TestUtils.readTree("[{\"op\": \"replace\", \"path\": \"/items/1/v\", \"value\": \"c\"}]"), diff);
+    }
+
+    @Test
+    public void reorderedElementIsMoved() {
+        JsonElement source = TestUtils.readTree("[{\"id\": 1}, {\"id\": 2}, {\"id\": 3}, {\"id\": 4}]");
+        JsonElement target = TestUtils.readTree("[{\"id\": 2}, {\"id\": 3}, {\"id\": 4}, {\"id\": 1, \"x\": true}]");
+
+        JsonArray diff = JsonDiff.asJson(source, target, DiffFlags.defaults(), BY_ID);
+
+        assertEquals(TestUtils.readTree("[{\"op\": \"move\", \"from\": \"/0\", \"path\": \"/3\"}," +
+                "{\"op\": \"add\", \"path\": \"/3/x\", \"value\": true}]"), diff);
+    }
+
+    @Test
+    public void insertedAndDeletedElementsAreAddedAndRemoved() {
+        JsonElement source = TestUtils.readTree("[{\"id\": 1}, {\"id\": 2}, {\"id\": 3}]");
+        JsonElement target = TestUtils.readTree("[{\"id\": 1}, {\"id\": 4}, {\"id\": 3}]");
+
+        JsonArray diff = JsonDiff.asJson(source, target, DiffFlags.dontNormalizeOpIntoMoveAndCopy(), BY_ID);
+
+        assertEquals(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/1\", \"value\": {\"id\": 2}}," +
+                "{\"op\": \"add\", \"path\": \"/1\", \"value\": {\"id\": 4}}]"), diff);
+    }
+
+    @Test
+    public void arraysWithDuplicateKeysAreDiffedByPosition() {
+        JsonElement source = TestUtils.readTree("[{\"id\": 1, \"v\": 1}, {\"id\": 1, \"v\": 2}]");
+        JsonElement target = TestUtils.readTree("[{\"id\": 1, \"v\": 2}]");
+
+        JsonArray diff = JsonDiff.asJson(source, target, DiffFlags.defaults(), BY_ID);
+
+        assertEquals(JsonDiff.asJson(source, target), diff);
+    }
+
+    @Test
+    public void generatedKeyedDiffsApplyCleanly() {
+        Random random = new Random(7);
+        List<EnumSet<DiffFlags>> allFlags = new ArrayList<EnumSet<DiffFlags>>();
+        allFlags.add(DiffFlags.defaults());
+        allFlags.add(DiffFlags.dontNormalizeOpIntoMoveAndCopy());
+        allFlags.add(EnumSet.of(DiffFlags.EMIT_TEST_OPERATIONS));
+
+        for (int i = 0; i < 1000; i++) {
+            JsonArray first = randomItems(random, 2);
+            JsonArray second = mutate(random, first, 2);
+            for (EnumSet<DiffFlags> flags : allFlags) {
+                JsonArray patch = JsonDiff.asJson(first, second, flags, BY_ID);
+                assertEquals("Patch " + patch + " from " + first, second, JsonPatch.apply(patch, first));
+            }
+        }
+    }
+
+    private static JsonArray randomItems(Random random, int depth) {
+        JsonArray items = new JsonArray();
+        int size = random.nextInt(8);
+        for (int id = 0; id < size; id++) {
+            items.add(randomItem(random, id, depth));
+        }
+        return items;
+    }
+
+    private static JsonObject randomItem(Random random, int id, int depth) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", id);
+        item.addProperty("v", random.nextInt(3));
+        if (depth > 0 && random.nextBoolean())
+            item.add("children", randomItems(random, depth - 1));
+        return item;
+    }
+
+    private static JsonArray mutate(Random random, JsonArray items, int depth) {
+        List<JsonElement> result = new ArrayList<JsonElement>();
+        for (JsonElement item : items) {
+            if (random.nextInt(5) == 0) continue;
+            JsonObject copy = item.deepCopy().getAsJsonObject();
+            if (random.nextInt(3) == 0)
+                copy.addProperty("v", random.nextInt(3));
+            if (copy.has("children"))
+                copy.add("children", mutate(random, copy.getAsJsonArray("children"), depth - 1));
+            result.add(copy);
+        }
+        if (random.nextBoolean())
+            Collections.shuffle(result, random);
+        int added = random.nextInt(3);
+        for (int i = 0; i < added; i++) {
+            result.add(random.nextInt(result.size() + 1), randomItem(random, 100 + i, depth));
+        }
+
+        JsonArray array = new JsonArray();
+        for (JsonElement element : result) {
+            array.add(element);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,105 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LcsTest {
+
+    @Test
+    public void matchesCommonPrefixAndSuffix() {
+        int[] matches = Lcs.align(new int[] {1, 2, 3, 4, 5}, new int[] {1, 2, 9, 4, 5}, DiffOptions.DEFAULT_MAX_LCS_CELLS);
+        assertArrayEquals(new int[] {0, 1, Lcs.NO_MATCH, 3, 4}, matches);
+    }
+
+    @Test
+    public void alignsInsertionsAndDeletions() {
+        int[] matches = Lcs.align(new int[] {1, 2, 3, 4}, new int[] {2, 3, 7, 4, 8}, DiffOptions.DEFAULT_MAX_LCS_CELLS);
+        assertArrayEquals(new int[] {Lcs.NO_MATCH, 0, 1, 3}, matches);
+    }
+
+    @Test
+    public void handlesEmptySequences() {
+        assertEquals(0, Lcs.align(new int[0], new int[] {1, 2}, 0).length);
+        assertArrayEquals(new int[] {Lcs.NO_MATCH, Lcs.NO_MATCH}, Lcs.align(new int[] {1, 2}, new int[0], 0));
+    }
+
+    @Test
+    public void findsLongestCommonSubsequenceOfRandomSequences() {
+        assertLongestCommonSubsequence(DiffOptions.DEFAULT_MAX_LCS_CELLS);
+    }
+
+    @Test
+    public void linearMemoryAlignmentFindsLongestCommonSubsequence() {
+        assertLongestCommonSubsequence(0);
+    }
+
+    @Test
+    public void fallsBackToLinearMemoryAlignmentWhenTraceIsTooLarge() {
+        assertLongestCommonSubsequence(10);
+    }
+
+    @Test
+    public void givesUpOnceWorkBudgetIsExhausted() {
+        Random random = new Random(7);
+        int[] a = randomSequence(random, 200, 50);
+        int[] b = randomSequence(random, 200, 50);
+
+        assertNull(Lcs.align(a, b, DiffOptions.DEFAULT_MAX_LCS_CELLS, new WorkBudget(100, Long.MAX_VALUE).startArray()));
+        assertNull(Lcs.align(a, b, 0, new WorkBudget(100, Long.MAX_VALUE).startArray()));
+        assertNotNull(Lcs.align(a, b, DiffOptions.DEFAULT_MAX_LCS_CELLS, new WorkBudget(1000000, Long.MAX_VALUE).startArray()));
+
+        WorkBudget shared = new WorkBudget(Long.MAX_VALUE, 100);
+        assertNull(Lcs.align(a, b, DiffOptions.DEFAULT_MAX_LCS_CELLS, shared.startArray()));
+        // matching common prefixes and suffixes is free, everything else fails once the budget is used up
+        assertNotNull(Lcs.align(a, a, DiffOptions.DEFAULT_MAX_LCS_CELLS, shared.startArray()));
+        assertNull(Lcs.align(new int[] {1, 2}, new int[] {2, 1}, DiffOptions.DEFAULT_MAX_LCS_CELLS, shared.startArray()));
+    }
+
+    private static void assertLongestCommonSubsequence(long maxCells) {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            int[] a = randomSequence(random, random.nextInt(30), 5);
+            int[] b = randomSequence(random, random.nextInt(30), 5);
+            int[] matches = Lcs.align(a, b, maxCells);
+
+            int matched = 0;
+            int lastTargetIdx = -1;
+            for (int j = 0; j < matches.length; j++) {
+                if (matches[j] == Lcs.NO_MATCH) continue;
+                assertTrue("Matches must be increasing", matches[j] > lastTargetIdx);
+                assertEquals(a[j], b[matches[j]]);
+                lastTargetIdx = matches[j];
+                matched++;
+            }
+            assertEquals(lcsLength(a, b), matched);
+        }
+    }
+
+    private static int[] randomSequence(Random random, int size, int alphabet) {
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = random.nextInt(alphabet);
+        }
+        return result;
+    }
+
+    private static int lcsLength(int[] a, int[] b) {
+        int[][] table = new int[a.length + 1][b.length + 1];
+        for (int i = 1; i <= a.length; i++) {
+            for (int j = 1; j <= b.length; j++) {
+                if (a[i - 1] == b[j - 1])
+                    table[i][j] = table[i - 1][j - 1] + 1;
+                else
+                    table[i][j] = Math.max(table[i - 1][j], table[i][j - 1]);
+            }
+        }
+        return table[a.length][b.length];
+    }
+}
@@ -0,0 +1,98 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class ParallelApplyTest {
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdownPool() {
+        POOL.shutdown();
+    }
+
+    private static JsonObject generateObject(Random random) {
+        JsonObject object = new JsonObject();
+        for (int i = 0; i < 6; i++) {
+            if (random.nextBoolean())
+                object.add("k" + random.nextInt(8), TestDataGenerator.generate(random.nextInt(4)));
+        }
+        return object;
+    }
+
+    @Test
+    public void parallelApplyMatchesSequentialApply() {
+        Random random = new Random(17);
+        for (int i = 0; i < 300; i++) {
+            JsonObject first = generateObject(random);
+            JsonObject second = generateObject(random);
+            JsonElement original = first.deepCopy();
+            for (EnumSet<DiffFlags> flags : Arrays.asList(DiffFlags.defaults(), DiffFlags.dontNormalizeOpIntoMoveAndCopy())) {
+                JsonArray patch = JsonDiff.asJson(first, second, flags);
+
+                JsonElement result = JsonPatch.applyInParallel(patch, first, POOL);
+                assertEquals(JsonPatch.apply(patch, first).toString(), result.toString());
+                assertEquals(second, result);
+                assertEquals(original, first);
+            }
+        }
+    }
+
+    @Test
+    public void fieldsAreOrderedAsBySequentialApply() {
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a\"}," +
+                "{\"op\": \"add\", \"path\": \"/d\", \"value\": 1}," +
+                "{\"op\": \"add\", \"path\": \"/a\", \"value\": 2}," +
+                "{\"op\": \"replace\", \"path\": \"/b\", \"value\": 3}," +
+                "{\"op\": \"move\", \"from\": \"/c/x\", \"path\": \"/c/y\"}]");
+        JsonElement source = TestUtils.readTree("{\"a\": 0, \"b\": 0, \"c\": {\"x\": 0}}");
+
+        JsonElement result = JsonPatch.applyInParallel(patch, source, POOL);
+        assertEquals(JsonPatch.apply(patch, source).toString(), result.toString());
+        assertEquals("{\"b\":3,\"c\":{\"y\":0},\"d\":1,\"a\":2}", result.toString());
+    }
+
+    @Test
+    public void earliestFailureIsRethrown() {
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/b/x\", \"value\": 1}," +
+                "{\"op\": \"test\", \"path\": \"/a/0\", \"value\": 2}," +
+                "{\"op\": \"remove\", \"path\": \"/b/y\"}]");
+        JsonElement source = TestUtils.readTree("{\"a\": [1], \"b\": {}}");
+
+        String expected = null;
+        try {
+            JsonPatch.apply(patch, source, EnumSet.of(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT));
+            fail("expected the patch to fail");
+        } catch (JsonPatchApplicationException e) {
+            expected = e.getMessage();
+        }
+        try {
+            JsonPatch.applyInParallel(patch, source, EnumSet.of(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT), POOL);
+            fail("expected the patch to fail");
+        } catch (JsonPatchApplicationException e) {
+            assertEquals(expected, e.getMessage());
+        }
+        assertEquals(TestUtils.readTree("{\"a\": [1], \"b\": {}}"), source);
+    }
+
+    @Test
+    public void patchesMovingValuesBetweenFieldsAreAppliedSequentially() {
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"move\", \"from\": \"/a/0\", \"path\": \"/b/-\"}," +
+                "{\"op\": \"copy\", \"from\": \"/b\", \"path\": \"/c\"}]");
+        JsonElement source = TestUtils.readTree("{\"a\": [1], \"b\": []}");
+
+        assertEquals(TestUtils.readTree("{\"a\": [], \"b\": [1], \"c\": [1]}"), JsonPatch.applyInParallel(patch, source, POOL));
+    }
+}
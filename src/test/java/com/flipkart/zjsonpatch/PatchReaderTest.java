@@ -0,0 +1,80 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.stream.JsonReader;
+
+public class PatchReaderTest {
+
+    private static JsonReader reader(String json) {
+        return new JsonReader(new StringReader(json));
+    }
+
+    @Test
+    public void readPatchAppliesLikeParsedPatch() throws IOException {
+        Random random = new Random(37);
+        for (int i = 0; i < 300; i++) {
+            JsonElement first = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement second = TestDataGenerator.generate(random.nextInt(10));
+            for (EnumSet<DiffFlags> flags : Arrays.asList(DiffFlags.defaults(), DiffFlags.dontNormalizeOpIntoMoveAndCopy())) {
+                JsonArray patch = JsonDiff.asJson(first, second, flags);
+
+                assertEquals(second, JsonPatch.apply(reader(patch.toString()), first));
+                JsonElement document = first.deepCopy();
+                JsonPatch.applyInPlace(reader(patch.toString()), document);
+                assertEquals(second, document);
+            }
+        }
+    }
+
+    @Test
+    public void readerIsLeftAfterPatch() throws IOException {
+        JsonReader in = reader("[[{\"op\": \"add\", \"path\": \"/b\", \"value\": [1]}], 2]");
+        in.beginArray();
+        assertEquals(TestUtils.readTree("{\"a\": 1, \"b\": [1]}"), JsonPatch.apply(in, TestUtils.readTree("{\"a\": 1}")));
+        assertEquals(2, in.nextInt());
+        in.endArray();
+    }
+
+    @Test
+    public void operationsBeforeInvalidOperationAreApplied() throws IOException {
+        JsonElement document = TestUtils.readTree("{\"a\": 1}");
+        try {
+            JsonPatch.applyInPlace(reader("[{\"op\": \"remove\", \"path\": \"/a\"}, {\"op\": \"add\", \"path\": \"/b\"}]"), document);
+            fail("expected the patch to be rejected");
+        } catch (InvalidJsonPatchException e) {
+            assertEquals("Invalid JSON Patch payload (missing 'value' field)", e.getMessage());
+        }
+        assertEquals(TestUtils.readTree("{}"), document);
+    }
+
+    @Test
+    public void invalidPatchesAreRejected() throws IOException {
+        for (String patch : Arrays.asList("{}", "[1]", "[{\"op\": \"add\", \"path\": 1, \"value\": 1}]", "[{\"op\": \"copy\", \"path\": \"/a\"}]")) {
+            String expected = null;
+            try {
+                JsonPatch.validate(TestUtils.readTree(patch));
+                fail("expected " + patch + " to be rejected");
+            } catch (InvalidJsonPatchException e) {
+                expected = e.getMessage();
+            }
+            try {
+                JsonPatch.validate(reader(patch));
+                fail("expected " + patch + " to be rejected");
+            } catch (InvalidJsonPatchException e) {
+                assertEquals(expected, e.getMessage());
+            }
+        }
+    }
+}
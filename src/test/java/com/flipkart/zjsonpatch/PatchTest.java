@@ -0,0 +1,91 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonPrimitive;
+
+public class PatchTest {
+
+    private static final List<EnumSet<DiffFlags>> ALL_FLAGS = Arrays.asList(
+            DiffFlags.defaults(),
+            DiffFlags.dontNormalizeOpIntoMoveAndCopy(),
+            EnumSet.of(DiffFlags.EMIT_TEST_OPERATIONS, DiffFlags.ADD_ORIGINAL_VALUE_ON_REPLACE, DiffFlags.OMIT_MOVE_OPERATION),
+            EnumSet.of(DiffFlags.ADD_ORIGINAL_VALUE_ON_REPLACE, DiffFlags.ADD_EXPLICIT_REMOVE_ADD_ON_REPLACE));
+
+    @Test
+    public void typedPatchMatchesJsonPatch() {
+        Random random = new Random(5);
+        for (int i = 0; i < 300; i++) {
+            JsonElement first = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement second = TestDataGenerator.generate(random.nextInt(10));
+            for (EnumSet<DiffFlags> flags : ALL_FLAGS) {
+                JsonArray json = JsonDiff.asJson(first, second, flags);
+                Patch patch = JsonDiff.asPatch(first, second, flags);
+
+                assertEquals(json.toString(), patch.toJson().toString());
+                assertEquals(patch, Patch.fromJson(json));
+                if (!flags.contains(DiffFlags.ADD_EXPLICIT_REMOVE_ADD_ON_REPLACE))
+                    assertEquals(second, JsonPatch.apply(patch, first));
+            }
+        }
+    }
+
+    @Test
+    public void applyInPlaceDoesNotShareValuesWithPatch() {
+        JsonElement source = TestUtils.readTree("{\"a\": 1}");
+        Patch patch = new Patch(Arrays.asList(PatchOperation.add(JsonPointer.parse("/b"), TestUtils.readTree("{\"c\": []}"))));
+
+        JsonPatch.applyInPlace(patch, source);
+        source.getAsJsonObject().getAsJsonObject("b").getAsJsonArray("c").add(1);
+
+        assertEquals(TestUtils.readTree("{\"c\": []}"), patch.getOperations().get(0).getValue());
+    }
+
+    @Test
+    public void operationsRenderAsRfc6902() {
+        Patch patch = new Patch(Arrays.asList(
+                PatchOperation.add(JsonPointer.parse("/a"), JsonNull.INSTANCE),
+                PatchOperation.remove(JsonPointer.parse("/b")),
+                PatchOperation.replace(JsonPointer.parse("/c"), new JsonPrimitive(1)),
+                PatchOperation.move(JsonPointer.parse("/d"), JsonPointer.parse("/e")),
+                PatchOperation.copy(JsonPointer.parse("/e"), JsonPointer.parse("/f")),
+                PatchOperation.test(JsonPointer.parse("/f"), new JsonPrimitive("x"))));
+
+        assertEquals(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a\", \"value\": null}," +
+                "{\"op\": \"remove\", \"path\": \"/b\"}," +
+                "{\"op\": \"replace\", \"path\": \"/c\", \"value\": 1}," +
+                "{\"op\": \"move\", \"from\": \"/d\", \"path\": \"/e\"}," +
+                "{\"op\": \"copy\", \"from\": \"/e\", \"path\": \"/f\"}," +
+                "{\"op\": \"test\", \"path\": \"/f\", \"value\": \"x\"}]"), patch.toJson());
+        assertEquals(patch, Patch.fromJson(patch.toJson()));
+        assertNull(patch.getOperations().get(1).getValue());
+    }
+
+    @Test(expected = InvalidJsonPatchException.class)
+    public void parsingRejectsMissingValue() {
+        Patch.fromJson(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a\"}]"));
+    }
+
+    @Test
+    public void parsingAcceptsMissingValueAsNullWithCompatibilityFlag() {
+        Patch patch = Patch.fromJson(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a\"}]"),
+                EnumSet.of(CompatibilityFlags.MISSING_VALUES_AS_NULLS));
+        assertEquals(JsonNull.INSTANCE, patch.getOperations().get(0).getValue());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void operationsAreUnmodifiable() {
+        new Patch(Arrays.asList(PatchOperation.remove(JsonPointer.ROOT))).getOperations().clear();
+    }
+}
@@ -0,0 +1,46 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class PathNodeTest {
+
+    @Test
+    public void flattensToEqualPointer() {
+        PathNode parent = PathNode.ROOT.append("a/b").append(0);
+        PathNode child = parent.append("~");
+
+        assertEquals(JsonPointer.parse("/a~1b/0/~0"), child.toPointer());
+        assertEquals(JsonPointer.parse("/a~1b/0"), parent.toPointer());
+        assertSame(JsonPointer.ROOT, PathNode.ROOT.toPointer());
+        assertSame(child.toPointer(), child.toPointer());
+    }
+
+    @Test
+    public void diffsDeeplyNestedDocuments() throws JsonPointerEvaluationException {
+        JsonElement source = new JsonArray();
+        JsonElement target = new JsonArray();
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            JsonObject sourceParent = new JsonObject();
+            JsonObject targetParent = new JsonObject();
+            sourceParent.add("k", source);
+            targetParent.add("k", target);
+            source = sourceParent;
+            target = targetParent;
+            path.append("/k");
+        }
+        target = target.deepCopy();
+        JsonPointer.parse(path.toString()).evaluate(target).getAsJsonArray().add(1);
+
+        Patch patch = JsonDiff.asPatch(source, target);
+        assertEquals(1, patch.size());
+        assertEquals(JsonPointer.parse(path + "/0"), patch.getOperations().get(0).getPath());
+    }
+}
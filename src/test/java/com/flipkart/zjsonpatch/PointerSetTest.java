@@ -0,0 +1,72 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+
+public class PointerSetTest {
+    private static final String[] TOKENS = { "0", "1", "-", "name", "friends", "a", "" };
+
+    private static JsonPointer randomPointer(Random random) {
+        JsonPointer pointer = JsonPointer.ROOT;
+        for (int i = random.nextInt(5); i > 0; i--) {
+            pointer = pointer.append(TOKENS[random.nextInt(TOKENS.length)]);
+        }
+        return pointer;
+    }
+
+    @Test
+    public void evaluatesLikeEvaluate() {
+        Random random = new Random(41);
+        for (int i = 0; i < 500; i++) {
+            JsonElement document = TestDataGenerator.generate(random.nextInt(10));
+            List<JsonPointer> pointers = new ArrayList<JsonPointer>();
+            for (int j = random.nextInt(30); j > 0; j--) {
+                pointers.add(randomPointer(random));
+            }
+
+            Map<JsonPointer, EvaluationResult> results = JsonPointer.evaluateAll(pointers, document);
+            for (JsonPointer pointer : pointers) {
+                EvaluationResult result = results.get(pointer);
+                assertEquals(pointer, result.getPointer());
+                try {
+                    JsonElement value = pointer.evaluate(document);
+                    assertTrue(result.isResolved());
+                    assertEquals(value, result.getValue());
+                } catch (JsonPointerEvaluationException e) {
+                    assertFalse(result.isResolved());
+                    assertEquals(e.getMessage(), result.getMessage());
+                    assertEquals(e.getPath(), result.getErrorPath());
+                    assertNull(result.getValue());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reportsEachDistinctPointerInOrder() {
+        PointerSet set = new PointerSet(Arrays.asList(JsonPointer.parse("/b/0"), JsonPointer.parse(""),
+                JsonPointer.parse("/a"), JsonPointer.parse("/b/0"), JsonPointer.parse("/b/x/y")));
+        Map<JsonPointer, EvaluationResult> results = set.evaluate(TestUtils.readTree("{\"a\": null, \"b\": [1]}"));
+
+        assertEquals(set.getPointers(), new ArrayList<JsonPointer>(results.keySet()));
+        assertEquals(Arrays.asList(JsonPointer.parse("/b/0"), JsonPointer.ROOT, JsonPointer.parse("/a"),
+                JsonPointer.parse("/b/x/y")), set.getPointers());
+        assertEquals(JsonNull.INSTANCE, results.get(JsonPointer.parse("/a")).getValue());
+        EvaluationResult failed = results.get(JsonPointer.parse("/b/x/y"));
+        assertEquals("Can't reference field \"x\" on array", failed.getMessage());
+        assertEquals(JsonPointer.parse("/b"), failed.getErrorPath());
+    }
+}
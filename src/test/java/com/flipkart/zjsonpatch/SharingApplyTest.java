@@ -0,0 +1,73 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.EnumSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class SharingApplyTest {
+
+    @Test
+    public void sharingApplyMatchesCopyingApply() {
+        Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            JsonElement first = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement second = TestDataGenerator.generate(random.nextInt(10));
+            JsonElement original = first.deepCopy();
+            JsonArray patch = JsonDiff.asJson(first, second);
+
+            assertEquals(JsonPatch.apply(patch, first), JsonPatch.applySharing(patch, first));
+            assertEquals(second, JsonPatch.applySharing(JsonDiff.asPatch(first, second), first));
+            assertEquals(original, first);
+        }
+    }
+
+    @Test
+    public void unmodifiedSubtreesAreShared() {
+        JsonObject source = TestUtils.readTree("{\"a\": {\"b\": [1, 2], \"c\": {\"d\": 1}}, \"e\": {\"f\": 1}}").getAsJsonObject();
+        JsonObject result = JsonPatch.applySharing(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a/b/-\", \"value\": 3}]"), source)
+                .getAsJsonObject();
+
+        assertEquals(TestUtils.readTree("{\"a\": {\"b\": [1, 2, 3], \"c\": {\"d\": 1}}, \"e\": {\"f\": 1}}"), result);
+        assertEquals(TestUtils.readTree("{\"a\": {\"b\": [1, 2], \"c\": {\"d\": 1}}, \"e\": {\"f\": 1}}"), source);
+        assertNotSame(source, result);
+        assertNotSame(source.get("a"), result.get("a"));
+        assertNotSame(source.getAsJsonObject("a").get("b"), result.getAsJsonObject("a").get("b"));
+        assertSame(source.get("e"), result.get("e"));
+        assertSame(source.getAsJsonObject("a").get("c"), result.getAsJsonObject("a").get("c"));
+    }
+
+    @Test
+    public void copiedValueIsIndependentOfItsOrigin() {
+        JsonElement source = TestUtils.readTree("{\"a\": {\"b\": 1}}");
+        JsonElement result = JsonPatch.applySharing(TestUtils.readTree("[{\"op\": \"replace\", \"path\": \"/a/b\", \"value\": 2}," +
+                "{\"op\": \"copy\", \"from\": \"/a\", \"path\": \"/c\"}," +
+                "{\"op\": \"replace\", \"path\": \"/c/b\", \"value\": 3}," +
+                "{\"op\": \"copy\", \"from\": \"/c\", \"path\": \"/d\"}," +
+                "{\"op\": \"add\", \"path\": \"/d/e\", \"value\": 4}]"), source);
+
+        assertEquals(TestUtils.readTree("{\"a\": {\"b\": 2}, \"c\": {\"b\": 3}, \"d\": {\"b\": 3, \"e\": 4}}"), result);
+        assertEquals(TestUtils.readTree("{\"a\": {\"b\": 1}}"), source);
+    }
+
+    @Test
+    public void failedApplyLeavesSourceUnchanged() {
+        JsonElement source = TestUtils.readTree("{\"a\": [1, 2]}");
+        try {
+            JsonPatch.applySharing(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a/0\"}, {\"op\": \"remove\", \"path\": \"/b\"}]"),
+                    source, EnumSet.of(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT));
+        } catch (JsonPatchApplicationException e) {
+            assertEquals(TestUtils.readTree("{\"a\": [1, 2]}"), source);
+            return;
+        }
+        throw new AssertionError("expected the patch to fail");
+    }
+}
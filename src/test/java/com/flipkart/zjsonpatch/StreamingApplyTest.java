@@ -0,0 +1,295 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+public class StreamingApplyTest {
+    private static final String[] KEYS = { "a", "b", "c", "0", "1" };
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private static String applyStreaming(Patch patch, String source, EnumSet<CompatibilityFlags> flags) throws IOException {
+        StringWriter out = new StringWriter();
+        JsonPatch.applyStreaming(patch, new JsonReader(new StringReader(source)), new JsonWriter(out), flags);
+        return out.toString();
+    }
+
+    private static JsonElement generate(Random random, int depth) {
+        int kind = depth == 0 ? 2 + random.nextInt(2) : random.nextInt(4);
+        if (kind == 0) {
+            JsonObject object = new JsonObject();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                object.add(KEYS[random.nextInt(KEYS.length)], generate(random, depth - 1));
+            }
+            return object;
+        } else if (kind == 1) {
+            JsonArray array = new JsonArray();
+            for (int i = random.nextInt(4); i > 0; i--) {
+                array.add(generate(random, depth - 1));
+            }
+            return array;
+        }
+        return kind == 2 ? new JsonPrimitive(random.nextInt(3)) : JsonNull.INSTANCE;
+    }
+
+    private static void collectPaths(JsonElement element, JsonPointer path, List<JsonPointer> paths) {
+        paths.add(path);
+        if (element.isJsonObject()) {
+            for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+                collectPaths(entry.getValue(), path.append(entry.getKey()), paths);
+            }
+        } else if (element.isJsonArray()) {
+            for (int i = 0; i < element.getAsJsonArray().size(); i++) {
+                collectPaths(element.getAsJsonArray().get(i), path.append(i), paths);
+            }
+        }
+    }
+
+    private static JsonPointer randomPath(Random random, List<JsonPointer> paths) {
+        JsonPointer path = paths.get(random.nextInt(paths.size()));
+        switch (random.nextInt(4)) {
+            case 0:
+                return path.append(KEYS[random.nextInt(KEYS.length)]);
+            case 1:
+                return path.append(random.nextBoolean() ? "-" : "3");
+            default:
+                return path;
+        }
+    }
+
+    private static Patch randomPatch(Random random, JsonElement document) {
+        List<JsonPointer> paths = new ArrayList<JsonPointer>();
+        collectPaths(document, JsonPointer.ROOT, paths);
+        List<PatchOperation> operations = new ArrayList<PatchOperation>();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            JsonPointer path = randomPath(random, paths);
+            JsonElement value = random.nextBoolean() ? generate(random, 2) : document;
+            switch (OPERATIONS[random.nextInt(OPERATIONS.length)]) {
+                case ADD: operations.add(PatchOperation.add(path, value)); break;
+                case REMOVE: operations.add(PatchOperation.remove(path)); break;
+                case REPLACE: operations.add(PatchOperation.replace(path, value)); break;
+                case MOVE: operations.add(PatchOperation.move(randomPath(random, paths), path)); break;
+                case COPY: operations.add(PatchOperation.copy(randomPath(random, paths), path)); break;
+                case TEST: operations.add(PatchOperation.test(path, value)); break;
+            }
+        }
+        return new Patch(operations);
+    }
+
+    @Test
+    public void streamingApplyMatchesApply() throws IOException {
+        Random random = new Random(29);
+        List<EnumSet<CompatibilityFlags>> allFlags = Arrays.asList(CompatibilityFlags.defaults(),
+                EnumSet.of(CompatibilityFlags.FORBID_REMOVE_MISSING_OBJECT, CompatibilityFlags.REMOVE_NONE_EXISTING_ARRAY_ELEMENT),
+                EnumSet.of(CompatibilityFlags.ALLOW_MISSING_TARGET_OBJECT_ON_REPLACE));
+        for (int i = 0; i < 5000; i++) {
+            JsonElement document = generate(random, 4);
+            Patch patch = randomPatch(random, document);
+            EnumSet<CompatibilityFlags> flags = allFlags.get(random.nextInt(allFlags.size()));
+
+            String expected;
+            try {
+                expected = JsonPatch.apply(patch, document, flags).toString();
+            } catch (RuntimeException e) {
+                expected = e.toString();
+            }
+            String actual;
+            try {
+                actual = applyStreaming(patch, document.toString(), flags);
+            } catch (RuntimeException e) {
+                actual = e.toString();
+            }
+            assertEquals(patch + " on " + document, expected, actual);
+        }
+    }
+
+    private static JsonElement generateArray(Random random, int depth) {
+        JsonArray array = new JsonArray();
+        for (int i = random.nextInt(8); i > 0; i--) {
+            if (depth > 0 && random.nextInt(3) == 0) {
+                array.add(generateArray(random, depth - 1));
+            } else if (random.nextInt(3) == 0) {
+                JsonObject element = new JsonObject();
+                element.addProperty("x", random.nextInt(3));
+                array.add(element);
+            } else {
+                array.add(random.nextInt(3));
+            }
+        }
+        return array;
+    }
+
+    private static JsonPointer randomPosition(Random random, List<JsonPointer> arrays) {
+        JsonPointer path = arrays.get(random.nextInt(arrays.size()));
+        int position = random.nextInt(11);
+        path = position == 10 ? path.append("-") : path.append(position);
+        return random.nextInt(4) == 0 ? path.append("x") : path;
+    }
+
+    @Test
+    public void arrayEditsMatchApply() throws IOException {
+        Random random = new Random(37);
+        List<EnumSet<CompatibilityFlags>> allFlags = Arrays.asList(CompatibilityFlags.defaults(),
+                EnumSet.of(CompatibilityFlags.REMOVE_NONE_EXISTING_ARRAY_ELEMENT));
+        for (int i = 0; i < 5000; i++) {
+            JsonObject document = new JsonObject();
+            document.add("a", generateArray(random, 2));
+            document.addProperty("b", random.nextInt(3));
+            JsonObject c = new JsonObject();
+            c.add("d", generateArray(random, 1));
+            document.add("c", c);
+
+            List<JsonPointer> arrays = new ArrayList<JsonPointer>();
+            List<JsonPointer> paths = new ArrayList<JsonPointer>();
+            collectPaths(document, JsonPointer.ROOT, paths);
+            for (JsonPointer path : paths) {
+                if (path.tryEvaluate(document).getValue().isJsonArray())
+                    arrays.add(path);
+            }
+            List<PatchOperation> operations = new ArrayList<PatchOperation>();
+            for (int j = 1 + random.nextInt(8); j > 0; j--) {
+                JsonPointer path = randomPosition(random, arrays);
+                JsonPrimitive value = new JsonPrimitive(10 + j);
+                switch (OPERATIONS[random.nextInt(OPERATIONS.length)]) {
+                    case ADD: operations.add(PatchOperation.add(path, value)); break;
+                    case REMOVE: operations.add(PatchOperation.remove(path)); break;
+                    case REPLACE: operations.add(PatchOperation.replace(path, value)); break;
+                    case MOVE: operations.add(PatchOperation.move(random.nextBoolean() ? randomPosition(random, arrays) : JsonPointer.parse("/b"), path)); break;
+                    case COPY: operations.add(PatchOperation.copy(randomPosition(random, arrays), path)); break;
+                    case TEST:
+                        EvaluationResult current = path.tryEvaluate(document);
+                        operations.add(PatchOperation.test(path, current.isResolved() ? current.getValue() : value));
+                        break;
+                }
+            }
+            Patch patch = new Patch(operations);
+            EnumSet<CompatibilityFlags> flags = allFlags.get(random.nextInt(allFlags.size()));
+
+            String expected;
+            try {
+                expected = JsonPatch.apply(patch, document, flags).toString();
+            } catch (RuntimeException e) {
+                expected = e.toString();
+            }
+            String actual;
+            try {
+                actual = applyStreaming(patch, document.toString(), flags);
+            } catch (RuntimeException e) {
+                actual = e.toString();
+            }
+            assertEquals(patch + " on " + document, expected, actual);
+        }
+    }
+
+    @Test
+    public void diffsApplyLikeApply() throws IOException {
+        Random random = new Random(31);
+        for (int i = 0; i < 500; i++) {
+            JsonElement first = generate(random, 4);
+            JsonElement second = generate(random, 4);
+            // move normalization can't handle numeric object keys
+            for (EnumSet<DiffFlags> flags : Arrays.asList(EnumSet.of(DiffFlags.OMIT_MOVE_OPERATION), DiffFlags.dontNormalizeOpIntoMoveAndCopy())) {
+                Patch patch = JsonDiff.asPatch(first, second, flags);
+                assertEquals(JsonPatch.apply(patch, first).toString(),
+                        applyStreaming(patch, first.toString(), CompatibilityFlags.defaults()));
+            }
+        }
+    }
+
+    @Test
+    public void untouchedValuesAreCopiedVerbatim() throws IOException {
+        String source = "{\"a\":[1.50,2e3,{\"b\":\"x\"}],\"c\":{\"d\":1,\"e\":[true,null]},\"f\":0}";
+        Patch patch = Patch.fromJson(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/c/g\", \"value\": 2}," +
+                "{\"op\": \"remove\", \"path\": \"/f\"}]"));
+
+        assertEquals("{\"a\":[1.50,2e3,{\"b\":\"x\"}],\"c\":{\"d\":1,\"e\":[true,null],\"g\":2}}",
+                applyStreaming(patch, source, CompatibilityFlags.defaults()));
+    }
+
+    /** Reads {@code source}, noting how much had been written to {@code out} once reading passed {@code mark}. */
+    private static final class ProbingReader extends Reader {
+        private final String source;
+        private final int mark;
+        private final StringWriter out;
+        private int position;
+        int writtenAtMark = -1;
+
+        ProbingReader(String source, int mark, StringWriter out) {
+            this.source = source;
+            this.mark = mark;
+            this.out = out;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= mark && writtenAtMark < 0)
+                writtenAtMark = out.getBuffer().length();
+            if (position == source.length())
+                return -1;
+            int count = Math.min(length, source.length() - position);
+            source.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    public void untouchedSiblingsAreStreamed() throws IOException {
+        StringBuilder large = new StringBuilder("[0");
+        for (int i = 1; i < 20000; i++) {
+            large.append(',').append(i);
+        }
+        large.append(']');
+        String source = "{\"a\":{\"x\":[1]},\"large\":" + large + ",\"b\":{}}";
+        int start = source.indexOf('[', 10);
+        for (String patch : Arrays.asList("[{\"op\": \"add\", \"path\": \"/large/-\", \"value\": 20000}]",
+                "[{\"op\": \"test\", \"path\": \"/large/2\", \"value\": 2}, {\"op\": \"replace\", \"path\": \"/large/3\", \"value\": 1}]",
+                "[{\"op\": \"move\", \"from\": \"/a/x\", \"path\": \"/a/y\"}, {\"op\": \"add\", \"path\": \"/b/z\", \"value\": 2}]",
+                "[{\"op\": \"copy\", \"from\": \"/b\", \"path\": \"/b/y\"}, {\"op\": \"add\", \"path\": \"/a/x/-\", \"value\": 2}]")) {
+            StringWriter out = new StringWriter();
+            // the middle of the large array, which is written as it's read unless materialized
+            ProbingReader in = new ProbingReader(source, start + large.length() / 2, out);
+            JsonPatch.applyStreaming(Patch.fromJson(TestUtils.readTree(patch)), new JsonReader(in), new JsonWriter(out),
+                    CompatibilityFlags.defaults());
+
+            assertEquals(JsonPatch.apply(TestUtils.readTree(patch), TestUtils.readTree(source)).toString(), out.toString());
+            assertTrue(patch, in.writtenAtMark > start + large.length() / 4);
+        }
+    }
+
+    @Test
+    public void failureIsReportedAgainstWholeDocument() throws IOException {
+        Patch patch = Patch.fromJson(TestUtils.readTree("[{\"op\": \"add\", \"path\": \"/a/b/c\", \"value\": 1}]"));
+        try {
+            applyStreaming(patch, "{\"a\": {\"x\": [1, 2]}}", CompatibilityFlags.defaults());
+            fail("expected the patch to fail");
+        } catch (JsonPatchApplicationException e) {
+            assertEquals("[ADD Operation] Missing field \"b\" at /a", e.toString());
+        }
+    }
+}
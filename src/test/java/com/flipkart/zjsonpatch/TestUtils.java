@@ -16,6 +16,10 @@ public class TestUtils {
     private TestUtils() {
     }
 
+    public static JsonElement readTree(String json) {
+        return DEFAULT_MAPPER.fromJson(json, JsonElement.class);
+    }
+
     public static JsonElement loadResourceAsJsonNode(String path) throws IOException {
         String testData = loadFromResources(path);
         return DEFAULT_MAPPER.fromJson(testData, JsonElement.class);
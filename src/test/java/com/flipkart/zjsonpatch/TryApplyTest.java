@@ -0,0 +1,167 @@
+package com.flipkart.zjsonpatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class TryApplyTest {
+
+    @Test
+    public void reportsOutcomesLikeApply() throws IOException {
+        for (String file : Arrays.asList("add", "copy", "move", "remove", "replace", "test", "js-libs-samples", "rfc6902-samples")) {
+            for (PatchTestCase testCase : PatchTestCase.load(file)) {
+                JsonObject node = testCase.getNode().getAsJsonObject();
+                JsonElement patch = node.get("op");
+                JsonElement source = node.get("node");
+
+                JsonElement expected;
+                try {
+                    expected = JsonPatch.apply(patch, source);
+                } catch (JsonPatchApplicationException e) {
+                    ApplyResult result = JsonPatch.tryApply(patch, source);
+                    assertFalse(result.isApplied());
+                    assertNull(result.getResult());
+                    assertEquals(e.getOperation(), result.getOperation());
+                    assertEquals(e.getPath(), result.getPath());
+                    assertEquals(e.getMessage(), result.getMessage());
+                    continue;
+                } catch (RuntimeException e) {
+                    // not a patch failure, so thrown by both
+                    try {
+                        JsonPatch.tryApply(patch, source);
+                        fail("expected " + e);
+                    } catch (RuntimeException e2) {
+                        assertEquals(e.toString(), e2.toString());
+                    }
+                    continue;
+                }
+                ApplyResult result = JsonPatch.tryApply(patch, source);
+                assertTrue(result.toString(), result.isApplied());
+                assertEquals(expected, result.getResult());
+            }
+        }
+    }
+
+    @Test
+    public void reportsIndexOfFailedOperation() {
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"replace\", \"path\": \"/status\", \"value\": \"done\"}," +
+                "{\"op\": \"test\", \"path\": \"/version\", \"value\": 2}," +
+                "{\"op\": \"add\", \"path\": \"/items/-\", \"value\": 1}]");
+        JsonElement source = TestUtils.readTree("{\"status\": \"open\", \"version\": 1, \"items\": []}");
+
+        ApplyResult result = JsonPatch.tryApply(Patch.fromJson(patch), source);
+        assertEquals(1, result.getOperationIndex());
+        assertEquals(Operation.TEST, result.getOperation());
+        assertEquals("#1 [TEST Operation] Expected value 2 but found value 1 at /version", result.toString());
+        assertEquals(TestUtils.readTree("{\"status\": \"open\", \"version\": 1, \"items\": []}"), source);
+    }
+
+    @Test
+    public void reportsInvalidOperations() {
+        ApplyResult result = JsonPatch.tryApply(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a\"}, {\"op\": \"add\", \"path\": \"/b\"}]"),
+                TestUtils.readTree("{\"a\": 1}"));
+        assertEquals(1, result.getOperationIndex());
+        assertNull(result.getOperation());
+        assertEquals("Invalid JSON Patch payload (missing 'value' field)", result.getMessage());
+
+        assertEquals(-1, JsonPatch.tryApply(TestUtils.readTree("{}"), TestUtils.readTree("{}")).getOperationIndex());
+    }
+
+    @Test
+    public void reportsInvalidPointers() {
+        for (String path : Arrays.asList("a", "/~2")) {
+            ApplyResult result = JsonPatch.tryApply(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a\"}, " +
+                    "{\"op\": \"add\", \"path\": \"" + path + "\", \"value\": 1}]"), TestUtils.readTree("{\"a\": 1}"));
+            assertFalse(result.isApplied());
+            assertEquals(1, result.getOperationIndex());
+            assertNull(result.getOperation());
+            assertNull(result.getPath());
+        }
+    }
+
+    @Test
+    public void reportsUnknownOperations() {
+        ApplyResult result = JsonPatch.tryApply(TestUtils.readTree("[{\"op\": \"append\", \"path\": \"/a\", \"value\": 1}]"),
+                TestUtils.readTree("{}"));
+        assertFalse(result.isApplied());
+        assertEquals(0, result.getOperationIndex());
+        assertNull(result.getOperation());
+    }
+
+    @Test
+    public void tryApplyInPlaceKeepsEarlierModifications() {
+        JsonElement patch = TestUtils.readTree("[{\"op\": \"replace\", \"path\": \"/status\", \"value\": \"done\"}," +
+                "{\"op\": \"test\", \"path\": \"/version\", \"value\": 2}]");
+        JsonElement source = TestUtils.readTree("{\"status\": \"open\", \"version\": 1}");
+
+        ApplyResult result = JsonPatch.tryApplyInPlace(patch, source);
+        assertEquals(1, result.getOperationIndex());
+        assertEquals(Operation.TEST, result.getOperation());
+        assertEquals(TestUtils.readTree("{\"status\": \"done\", \"version\": 1}"), source);
+
+        source = TestUtils.readTree("{\"status\": \"open\", \"version\": 2}");
+        result = JsonPatch.compile(patch).tryApplyInPlace(source);
+        assertTrue(result.isApplied());
+        assertSame(source, result.getResult());
+        assertEquals(TestUtils.readTree("{\"status\": \"done\", \"version\": 2}"), source);
+    }
+
+    @Test
+    public void tryApplyInPlaceReturnsReplacedRoot() {
+        JsonElement source = TestUtils.readTree("{\"a\": 1}");
+        ApplyResult result = JsonPatch.tryApplyInPlace(TestUtils.readTree("[{\"op\": \"replace\", \"path\": \"\", \"value\": [1]}]"),
+                source, CompatibilityFlags.defaults(), new JsonPointerCache(16));
+        assertTrue(result.isApplied());
+        assertEquals(TestUtils.readTree("[1]"), result.getResult());
+    }
+
+    @Test
+    public void compiledPatchTryApplyLeavesSource() {
+        CompiledPatch patch = JsonPatch.compile(TestUtils.readTree("[{\"op\": \"remove\", \"path\": \"/a\"}, " +
+                "{\"op\": \"test\", \"path\": \"/a\", \"value\": 2}]"));
+        JsonElement source = TestUtils.readTree("{\"a\": 1}");
+
+        ApplyResult result = patch.tryApply(source);
+        assertEquals(1, result.getOperationIndex());
+        assertEquals(Operation.TEST, result.getOperation());
+        assertEquals(TestUtils.readTree("{\"a\": 1}"), source);
+    }
+
+    @Test
+    public void exceptionsHaveNoStackTrace() {
+        try {
+            JsonPatch.apply(TestUtils.readTree("[{\"op\": \"test\", \"path\": \"/a\", \"value\": 2}]"), TestUtils.readTree("{\"a\": 1}"));
+            fail("expected the patch to fail");
+        } catch (JsonPatchApplicationException e) {
+            assertEquals(0, e.getStackTrace().length);
+        }
+        try {
+            JsonPointer.parse("/a/b").evaluate(TestUtils.readTree("{\"a\": 1}"));
+            fail("expected the pointer not to resolve");
+        } catch (JsonPointerEvaluationException e) {
+            assertEquals(0, e.getStackTrace().length);
+        }
+    }
+
+    @Test
+    public void tryEvaluateReportsFailure() {
+        JsonElement document = TestUtils.readTree("{\"a\": [1]}");
+        assertEquals(TestUtils.readTree("1"), JsonPointer.parse("/a/0").tryEvaluate(document).getValue());
+
+        EvaluationResult result = JsonPointer.parse("/a/1/b").tryEvaluate(document);
+        assertFalse(result.isResolved());
+        assertEquals("Array index 1 is out of bounds", result.getMessage());
+        assertEquals(JsonPointer.parse("/a"), result.getErrorPath());
+    }
+}